@@ -0,0 +1,54 @@
+package com.neurocart.config;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(CacheConfig.CacheProperties.class)
+@Slf4j
+public class CacheConfig {
+
+    @Data
+    @ConfigurationProperties("neurocart.cache")
+    public static class CacheProperties {
+        private Spec defaults = new Spec();
+        private Map<String, Spec> caches = new LinkedHashMap<>();
+        private Shared shared = new Shared();
+        /** How long callers wait on another caller's in-flight load of the same key. */
+        private Duration coalescingTimeout = Duration.ofSeconds(5);
+
+        @Data
+        public static class Spec {
+            private long maxSize = 10_000;
+            private Duration ttl = Duration.ofMinutes(10);
+            /** False keeps the cache node-local even when the shared tier is enabled. */
+            private boolean shared = true;
+        }
+
+        @Data
+        public static class Shared {
+            private boolean enabled = false;
+            private long maxSize = 100_000;
+            private Duration ttl = Duration.ofMinutes(30);
+        }
+    }
+
+    @Bean
+    public TieredCacheManager cacheManager(CacheProperties properties) {
+        SharedCacheTier shared = null;
+        if (properties.getShared().isEnabled()) {
+            // Swap in a networked implementation for multi-node deployments
+            shared = new LocalSharedCacheTier(properties.getShared().getTtl(), properties.getShared().getMaxSize());
+            log.info("Two-tier caching enabled (shared tier TTL {})", properties.getShared().getTtl());
+        }
+        return new TieredCacheManager(properties, shared);
+    }
+}
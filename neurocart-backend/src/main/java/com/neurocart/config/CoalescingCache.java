@@ -0,0 +1,80 @@
+package com.neurocart.config;
+
+import com.neurocart.util.SingleFlight;
+import org.springframework.cache.Cache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Routes {@code @Cacheable(sync = true)} misses through a {@link SingleFlight}
+ * so concurrent misses on one key run the method once. Plain reads and
+ * writes go straight to the delegate.
+ */
+public class CoalescingCache implements Cache {
+
+    private final Cache delegate;
+    private final SingleFlight<Object, Object> flights;
+
+    public CoalescingCache(Cache delegate, SingleFlight<Object, Object> flights) {
+        this.delegate = delegate;
+        this.flights = flights;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper hit = delegate.get(key);
+        if (hit != null)
+            return (T) hit.get();
+        return (T) flights.execute(key, () -> {
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            delegate.put(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    public Map<String, Object> stats() {
+        return flights.stats();
+    }
+}
@@ -29,6 +29,10 @@ public class DataInitializer implements CommandLineRunner {
         @Override
         @Transactional
         public void run(String... args) {
+                int backfilled = productRepository.backfillSortKeys();
+                if (backfilled > 0)
+                        log.info("Filled missing sort keys on {} products", backfilled);
+
                 if (roleRepository.count() > 0) {
                         log.info("Data already initialized. Skipping...");
                         return;
@@ -0,0 +1,68 @@
+package com.neurocart.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a shared tier, used for single-node runs and local
+ * testing of the two-tier topology. It has the same TTL semantics as the
+ * remote store but does not serialize values.
+ */
+public class LocalSharedCacheTier implements SharedCacheTier {
+
+    private final Duration ttl;
+    private final long maxSize;
+    private final Map<String, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LocalSharedCacheTier(Duration ttl, long maxSize) {
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Object get(String cacheName, Object key) {
+        Object value = cache(cacheName).getIfPresent(key);
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    @Override
+    public void put(String cacheName, Object key, Object value) {
+        cache(cacheName).put(key, value);
+    }
+
+    @Override
+    public void evict(String cacheName, Object key) {
+        cache(cacheName).invalidate(key);
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        cache(cacheName).invalidateAll();
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "local");
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("entries", caches.values().stream().mapToLong(Cache::estimatedSize).sum());
+        return stats;
+    }
+
+    private Cache<Object, Object> cache(String cacheName) {
+        return caches.computeIfAbsent(cacheName, name -> Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build());
+    }
+}
@@ -1,5 +1,6 @@
 package com.neurocart.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,11 +35,15 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll()
+                        // Async dispatches resume an already authorized request (streamed exports)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers(HttpMethod.GET, "/products/export").hasRole("VENDOR")
                         .requestMatchers(HttpMethod.GET, "/products/**", "/categories/**").permitAll()
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         .requestMatchers("/vendors/approve/**", "/vendors/reject/**").hasRole("ADMIN")
                         .requestMatchers("/vendors/dashboard/**").hasRole("VENDOR")
-                        .requestMatchers("/products/create", "/products/update/**", "/products/delete/**")
+                        .requestMatchers("/products/create", "/products/import", "/products/update/**",
+                                "/products/delete/**")
                         .hasAnyRole("ADMIN", "VENDOR")
                         .anyRequest().authenticated())
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,21 @@
+package com.neurocart.config;
+
+import java.util.Map;
+
+/**
+ * Second cache tier shared between application nodes (e.g. Redis).
+ * Values are looked up here after a local miss and written through on load.
+ */
+public interface SharedCacheTier {
+
+    /** Returns null on a miss. */
+    Object get(String cacheName, Object key);
+
+    void put(String cacheName, Object key, Object value);
+
+    void evict(String cacheName, Object key);
+
+    void clear(String cacheName);
+
+    Map<String, Object> stats();
+}
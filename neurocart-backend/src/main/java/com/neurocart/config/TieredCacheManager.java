@@ -0,0 +1,86 @@
+package com.neurocart.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.neurocart.util.SingleFlight;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named Caffeine caches (size-bounded, W-TinyLFU eviction) with per-cache
+ * size and TTL, optionally fronting a {@link SharedCacheTier} (unless the
+ * cache opts out with {@code shared=false}). Synchronized
+ * misses are coalesced per key through {@link CoalescingCache}.
+ */
+public class TieredCacheManager implements CacheManager {
+
+    private final CacheConfig.CacheProperties properties;
+    private final SharedCacheTier shared;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    /** @param shared null for a local-only topology */
+    public TieredCacheManager(CacheConfig.CacheProperties properties, SharedCacheTier shared) {
+        this.properties = properties;
+        this.shared = shared;
+        properties.getCaches().keySet().forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /** Whether entries of the named cache are written to the shared tier. */
+    public boolean isShared(String name) {
+        return shared != null && specFor(name).isShared();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        new TreeMap<>(caches).forEach((name, cache) -> {
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache
+                    .getNativeCache();
+            CacheStats s = nativeCache.stats();
+            CacheConfig.CacheProperties.Spec spec = specFor(name);
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("size", nativeCache.estimatedSize());
+            cacheStats.put("maxSize", spec.getMaxSize());
+            cacheStats.put("ttl", spec.getTtl().toString());
+            cacheStats.put("shared", isShared(name));
+            cacheStats.put("hits", s.hitCount());
+            cacheStats.put("misses", s.missCount());
+            cacheStats.put("hitRate", s.hitRate());
+            cacheStats.put("evictions", s.evictionCount());
+            cacheStats.put("coalescing", ((CoalescingCache) cache).stats());
+            stats.put(name, cacheStats);
+        });
+        if (shared != null)
+            stats.put("sharedTier", shared.stats());
+        return stats;
+    }
+
+    private Cache createCache(String name) {
+        CacheConfig.CacheProperties.Spec spec = specFor(name);
+        Cache local = new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(spec.getMaxSize())
+                .expireAfterWrite(spec.getTtl())
+                .recordStats()
+                .build());
+        Cache tiered = isShared(name) ? new TwoTierCache(local, shared) : local;
+        return new CoalescingCache(tiered, new SingleFlight<>(properties.getCoalescingTimeout()));
+    }
+
+    private CacheConfig.CacheProperties.Spec specFor(String name) {
+        return properties.getCaches().getOrDefault(name, properties.getDefaults());
+    }
+}
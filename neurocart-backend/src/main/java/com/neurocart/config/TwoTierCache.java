@@ -0,0 +1,84 @@
+package com.neurocart.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Local Caffeine cache in front of a {@link SharedCacheTier}. Reads fall
+ * through to the shared tier and then the loader; writes and evictions go
+ * to both tiers.
+ */
+public class TwoTierCache implements Cache {
+
+    private final Cache local;
+    private final SharedCacheTier shared;
+
+    public TwoTierCache(Cache local, SharedCacheTier shared) {
+        this.local = local;
+        this.shared = shared;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null)
+            return value;
+        Object remote = shared.get(getName(), key);
+        if (remote == null)
+            return null;
+        local.put(key, remote);
+        return new SimpleValueWrapper(remote);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        return value != null ? (T) value.get() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return local.get(key, () -> {
+            Object remote = shared.get(getName(), key);
+            if (remote != null)
+                return (T) remote;
+            T loaded = valueLoader.call();
+            if (loaded != null)
+                shared.put(getName(), key, loaded);
+            return loaded;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, value);
+        if (value != null)
+            shared.put(getName(), key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        shared.evict(getName(), key);
+        local.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        shared.clear(getName());
+        local.clear();
+    }
+}
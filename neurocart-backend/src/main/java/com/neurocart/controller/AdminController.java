@@ -1,15 +1,32 @@
 package com.neurocart.controller;
 
+import com.neurocart.config.TieredCacheManager;
 import com.neurocart.dto.AnalyticsDTO;
 import com.neurocart.entity.Vendor;
 import com.neurocart.service.AdminService;
+import com.neurocart.service.CartService;
+import com.neurocart.service.CartStore;
+import com.neurocart.service.CheckoutAdmission;
+import com.neurocart.service.CoPurchaseIndex;
+import com.neurocart.service.DemandCounter;
+import com.neurocart.service.HotStockLedger;
+import com.neurocart.service.IdempotentCheckout;
+import com.neurocart.service.OutboxService;
+import com.neurocart.service.PriceHistoryStore;
+import com.neurocart.service.ProductDetailCache;
+import com.neurocart.service.PricingEngine;
+import com.neurocart.service.ProductExportService;
 import com.neurocart.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
@@ -19,6 +36,19 @@ public class AdminController {
 
     private final AdminService adminService;
     private final ProductService productService;
+    private final ProductExportService productExportService;
+    private final DemandCounter demandCounter;
+    private final PricingEngine pricingEngine;
+    private final PriceHistoryStore priceHistoryStore;
+    private final TieredCacheManager cacheManager;
+    private final ProductDetailCache productDetailCache;
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final CartService cartService;
+    private final CartStore cartStore;
+    private final HotStockLedger hotStockLedger;
+    private final OutboxService outboxService;
+    private final IdempotentCheckout idempotentCheckout;
+    private final CheckoutAdmission checkoutAdmission;
 
     @GetMapping("/dashboard")
     public ResponseEntity<AnalyticsDTO.DashboardStats> getDashboard() {
@@ -55,4 +85,97 @@ public class AdminController {
     public ResponseEntity<?> getLowStock(@RequestParam(defaultValue = "10") int threshold) {
         return ResponseEntity.ok(productService.getLowStockProducts(threshold));
     }
+
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "NDJSON") ProductExportService.Format format,
+            @RequestParam(required = false) Long vendorId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            @RequestParam(defaultValue = "false") boolean includeInactive) {
+        return productExportService.exportResponse(format, ProductExportService.Filter.builder()
+                .vendorId(vendorId)
+                .categoryId(categoryId)
+                .updatedSince(updatedSince)
+                .includeInactive(includeInactive)
+                .build());
+    }
+
+    @GetMapping("/metrics/demand")
+    public ResponseEntity<Map<String, Object>> getDemandMetrics() {
+        return ResponseEntity.ok(demandCounter.stats());
+    }
+
+    @GetMapping("/metrics/pricing")
+    public ResponseEntity<Map<String, Object>> getPricingMetrics() {
+        return ResponseEntity.ok(pricingEngine.stats());
+    }
+
+    @GetMapping("/metrics/price-history")
+    public ResponseEntity<Map<String, Object>> getPriceHistoryMetrics() {
+        return ResponseEntity.ok(priceHistoryStore.stats());
+    }
+
+    @GetMapping("/metrics/product-details")
+    public ResponseEntity<Map<String, Object>> getProductDetailMetrics() {
+        return ResponseEntity.ok(productDetailCache.stats());
+    }
+
+    @GetMapping("/metrics/co-purchase")
+    public ResponseEntity<Map<String, Object>> getCoPurchaseMetrics() {
+        return ResponseEntity.ok(coPurchaseIndex.stats());
+    }
+
+    @GetMapping("/metrics/cart")
+    public ResponseEntity<Map<String, Object>> getCartMetrics() {
+        return ResponseEntity.ok(cartService.stats());
+    }
+
+    @GetMapping("/metrics/cart-store")
+    public ResponseEntity<Map<String, Object>> getCartStoreMetrics() {
+        return ResponseEntity.ok(cartStore.stats());
+    }
+
+    @GetMapping("/metrics/hot-stock")
+    public ResponseEntity<Map<String, Object>> getHotStockMetrics() {
+        return ResponseEntity.ok(hotStockLedger.stats());
+    }
+
+    @GetMapping("/metrics/outbox")
+    public ResponseEntity<Map<String, Object>> getOutboxMetrics() {
+        return ResponseEntity.ok(outboxService.stats());
+    }
+
+    @GetMapping("/metrics/idempotency")
+    public ResponseEntity<Map<String, Object>> getIdempotencyMetrics() {
+        return ResponseEntity.ok(idempotentCheckout.stats());
+    }
+
+    @GetMapping("/metrics/checkout-admission")
+    public ResponseEntity<Map<String, Object>> getCheckoutAdmissionMetrics() {
+        return ResponseEntity.ok(checkoutAdmission.stats());
+    }
+
+    @PostMapping("/products/{id}/hot-stock")
+    public ResponseEntity<Map<String, Object>> enableHotStock(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer shards) {
+        return ResponseEntity.ok(hotStockLedger.enable(id, shards));
+    }
+
+    @DeleteMapping("/products/{id}/hot-stock")
+    public ResponseEntity<Map<String, Object>> disableHotStock(@PathVariable Long id) {
+        return ResponseEntity.ok(hotStockLedger.disable(id));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(cacheManager.stats());
+    }
+
+    @PostMapping("/pricing/run")
+    public ResponseEntity<Map<String, Object>> runPricing() {
+        pricingEngine.repriceCatalog();
+        return ResponseEntity.ok(pricingEngine.stats());
+    }
 }
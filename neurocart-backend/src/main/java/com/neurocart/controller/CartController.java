@@ -3,6 +3,7 @@ package com.neurocart.controller;
 import com.neurocart.dto.CartDTO;
 import com.neurocart.entity.User;
 import com.neurocart.service.CartService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -27,6 +28,13 @@ public class CartController {
         return ResponseEntity.ok(cartService.addToCart(user, request));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<CartDTO.CartSummary> applyBatch(
+            @Valid @RequestBody CartDTO.BatchRequest request,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(cartService.applyBatch(user, request));
+    }
+
     @PutMapping("/update/{productId}")
     public ResponseEntity<CartDTO.CartResponse> updateCart(
             @PathVariable Long productId,
@@ -3,6 +3,7 @@ package com.neurocart.controller;
 import com.neurocart.dto.OrderDTO;
 import com.neurocart.entity.Order;
 import com.neurocart.entity.User;
+import com.neurocart.service.IdempotentCheckout;
 import com.neurocart.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -17,12 +18,17 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotentCheckout idempotentCheckout;
 
     @PostMapping("/place")
     public ResponseEntity<OrderDTO.OrderResponse> placeOrder(
             @RequestBody OrderDTO.PlaceOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(orderService.placeOrder(user, request));
+        IdempotentCheckout.Outcome outcome = idempotentCheckout.placeOrder(user, request, idempotencyKey);
+        return ResponseEntity.ok()
+                .header("Idempotent-Replayed", String.valueOf(outcome.replayed()))
+                .body(outcome.order());
     }
 
     @GetMapping
@@ -33,6 +39,14 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getUserOrders(user, page, size));
     }
 
+    @GetMapping("/history")
+    public ResponseEntity<OrderDTO.OrderHistoryPage> getOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(orderService.getOrderHistory(user, cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderDTO.OrderResponse> getOrder(@PathVariable Long id, @AuthenticationPrincipal User user) {
         return ResponseEntity.ok(orderService.getOrderById(id, user));
@@ -2,16 +2,27 @@ package com.neurocart.controller;
 
 import com.neurocart.dto.ProductDTO;
 import com.neurocart.entity.User;
+import com.neurocart.service.ProductExportService;
+import com.neurocart.service.ProductFacetIndex;
+import com.neurocart.service.ProductImportService;
 import com.neurocart.service.ProductService;
 import com.neurocart.service.RecommendationService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/products")
@@ -19,6 +30,8 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
     private final RecommendationService recommendationService;
 
     @GetMapping
@@ -31,11 +44,52 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts(page, size, sortBy, categoryId, search));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<ProductDTO.ProductCursorPage> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) Long categoryId) {
+        return ResponseEntity.ok(productService.getProductsAfter(cursor, size, sortBy, categoryId));
+    }
+
+    @GetMapping("/browse")
+    public ResponseEntity<ProductDTO.FacetedProductPage> browseProducts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<Long> categoryId,
+            @RequestParam(required = false) List<Long> vendorId,
+            @RequestParam(required = false) List<ProductFacetIndex.PriceBand> priceBand,
+            @RequestParam(required = false) List<Integer> rating,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "all") String match) {
+        ProductFacetIndex.Query query = new ProductFacetIndex.Query(toSet(categoryId), toSet(vendorId),
+                toSet(priceBand), toSet(rating), inStock, "any".equalsIgnoreCase(match));
+        return ResponseEntity.ok(productService.browseProducts(query, search, page, size, sortBy));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductDTO.Suggestion>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggest(q, limit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO.ProductResponse> getProduct(@PathVariable Long id) {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
+    @GetMapping("/{id}/price-history")
+    public ResponseEntity<ProductDTO.PriceHistory> getPriceHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(productService.getPriceHistory(id, from, to));
+    }
+
     @PostMapping("/create")
     public ResponseEntity<ProductDTO.ProductResponse> createProduct(
             @Valid @RequestBody ProductDTO.ProductRequest request,
@@ -43,6 +97,34 @@ public class ProductController {
         return ResponseEntity.ok(productService.createProduct(request, user));
     }
 
+    /** Streams a CSV (header row required) or NDJSON upload; the body is never buffered whole. */
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<ProductDTO.ImportReport> importProducts(
+            HttpServletRequest request,
+            @AuthenticationPrincipal User user) throws IOException {
+        ProductImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                        ? ProductImportService.Format.CSV
+                        : ProductImportService.Format.NDJSON;
+        return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format, user));
+    }
+
+    /** The calling vendor's own catalog; admins use /admin/products/export. */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "NDJSON") ProductExportService.Format format,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            @RequestParam(defaultValue = "false") boolean includeInactive,
+            @AuthenticationPrincipal User user) {
+        return productExportService.exportResponse(format, ProductExportService.Filter.builder()
+                .vendorId(productExportService.vendorIdOf(user))
+                .categoryId(categoryId)
+                .updatedSince(updatedSince)
+                .includeInactive(includeInactive)
+                .build());
+    }
+
     @PutMapping("/update/{id}")
     public ResponseEntity<ProductDTO.ProductResponse> updateProduct(
             @PathVariable Long id,
@@ -71,4 +153,8 @@ public class ProductController {
     public ResponseEntity<List<ProductDTO.ProductSummary>> getRecommendations(@AuthenticationPrincipal User user) {
         return ResponseEntity.ok(recommendationService.getRecommendations(user));
     }
+
+    private static <T> Set<T> toSet(List<T> values) {
+        return values != null ? new HashSet<>(values) : null;
+    }
 }
@@ -3,6 +3,7 @@ package com.neurocart.dto;
 import lombok.Builder;
 import lombok.Data;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.util.List;
@@ -18,6 +19,27 @@ public class CartDTO {
         private Integer quantity = 1;
     }
 
+    /** Operations applied in order, all-or-nothing. */
+    @Data
+    public static class BatchRequest {
+        @NotEmpty
+        @Size(max = 100)
+        private List<@Valid @NotNull BatchOperation> operations;
+    }
+
+    @Data
+    public static class BatchOperation {
+        public enum Type { ADD, UPDATE, REMOVE }
+
+        @NotNull
+        private Type type;
+        @NotNull
+        private Long productId;
+        @Min(1)
+        @Max(50)
+        private Integer quantity = 1; // ignored for REMOVE
+    }
+
     @Data
     @Builder
     public static class CartResponse {
@@ -40,6 +62,7 @@ public class CartDTO {
         private int itemCount;
         private List<SmartSuggestion> alternativeSuggestions;
         private List<BundleSuggestion> bundleSuggestions;
+        private boolean partial; // suggestions skipped because they missed the time budget
     }
 
     @Data
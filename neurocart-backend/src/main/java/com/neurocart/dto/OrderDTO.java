@@ -1,7 +1,9 @@
 package com.neurocart.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,6 +21,8 @@ public class OrderDTO {
 
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class OrderResponse {
         private Long id;
         private String orderNumber;
@@ -41,6 +45,8 @@ public class OrderDTO {
 
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class OrderItemResponse {
         private Long id;
         private Long productId;
@@ -50,4 +56,13 @@ public class OrderDTO {
         private BigDecimal unitPrice;
         private BigDecimal totalPrice;
     }
+
+    @Data
+    @Builder
+    public static class OrderHistoryPage {
+        private List<OrderResponse> content;
+        private int size;
+        private boolean hasNext;
+        private String nextCursor;
+    }
 }
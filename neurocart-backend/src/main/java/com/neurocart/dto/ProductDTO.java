@@ -9,6 +9,7 @@ import jakarta.validation.constraints.Positive;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class ProductDTO {
 
@@ -40,7 +41,7 @@ public class ProductDTO {
     }
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     public static class ProductResponse {
         private Long id;
         private String name;
@@ -82,4 +83,76 @@ public class ProductDTO {
         private String categoryName;
         private boolean inWishlist;
     }
+
+    @Data
+    @Builder
+    public static class FacetedProductPage {
+        private List<ProductSummary> content;
+        private int page;
+        private int size;
+        private long totalElements;
+        private int totalPages;
+        private Map<String, List<FacetCount>> facets;
+    }
+
+    @Data
+    @Builder
+    public static class FacetCount {
+        private String value;
+        private String label;
+        private int count;
+        private boolean selected;
+    }
+
+    @Data
+    @Builder
+    public static class Suggestion {
+        private String text;
+        private String type; // PRODUCT, TAG
+        private Long productId;
+        private long weight;
+    }
+
+    @Data
+    @Builder
+    public static class ProductCursorPage {
+        private List<ProductSummary> content;
+        private int size;
+        private boolean hasNext;
+        private String nextCursor;
+    }
+
+    @Data
+    @Builder
+    public static class PriceHistory {
+        private Long productId;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private List<PricePoint> points;
+    }
+
+    @Data
+    @Builder
+    public static class PricePoint {
+        private LocalDateTime timestamp;
+        private BigDecimal price;
+    }
+
+    @Data
+    @Builder
+    public static class ImportReport {
+        private long totalRows;
+        private long imported;
+        private long failed;
+        private long durationMs;
+        private List<ImportError> errors; // first 1000 only
+    }
+
+    @Data
+    @Builder
+    public static class ImportError {
+        private long line;
+        private String sku;
+        private String message;
+    }
 }
@@ -3,6 +3,7 @@ package com.neurocart.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -10,7 +11,18 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_active_created", columnList = "is_active, created_at, id"),
+        @Index(name = "idx_products_active_price", columnList = "is_active, current_price, id"),
+        @Index(name = "idx_products_active_rating", columnList = "is_active, average_rating, id"),
+        @Index(name = "idx_products_active_demand", columnList = "is_active, demand_count, id"),
+        @Index(name = "idx_products_category_created", columnList = "category_id, is_active, created_at, id"),
+        @Index(name = "idx_products_category_price", columnList = "category_id, is_active, current_price, id"),
+        @Index(name = "idx_products_category_rating", columnList = "category_id, is_active, average_rating, id"),
+        @Index(name = "idx_products_category_demand", columnList = "category_id, is_active, demand_count, id"),
+        @Index(name = "idx_products_updated", columnList = "updated_at, id")
+})
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -31,17 +43,31 @@ public class Product {
     @Column(name = "base_price", nullable = false, precision = 10, scale = 2)
     private BigDecimal basePrice;
 
-    @Column(name = "current_price", nullable = false, precision = 10, scale = 2)
+    // Stock, demand and price are changed only by targeted SQL (checkout, restock,
+    // demand flush, repricing); an entity save must never write back a stale copy
+    @Column(name = "current_price", nullable = false, updatable = false, precision = 10, scale = 2)
     private BigDecimal currentPrice;
 
-    @Column(name = "stock_quantity", nullable = false)
+    @Column(name = "stock_quantity", nullable = false, updatable = false)
     @Builder.Default
     private Integer stockQuantity = 0;
 
-    @Column(name = "demand_count")
+    @Column(name = "demand_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer demandCount = 0;
 
+    // Net units added or removed by explicit stock edits; hot-stock reconciliation trusts this, not row deltas
+    @Column(name = "restocked_units", insertable = false, updatable = false,
+            columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long restockedUnits;
+
+    // Node whose hot-stock ledger holds this product's units until hot_stock_until; row checkouts skip it meanwhile
+    @Column(name = "hot_stock_owner", insertable = false, updatable = false, length = 100)
+    private String hotStockOwner;
+
+    @Column(name = "hot_stock_until", insertable = false, updatable = false)
+    private LocalDateTime hotStockUntil;
+
     @Column(name = "image_url")
     private String imageUrl;
 
@@ -64,7 +90,7 @@ public class Product {
     @Builder.Default
     private boolean featured = false;
 
-    @Column(name = "average_rating")
+    @Column(name = "average_rating", nullable = false)
     @Builder.Default
     private Double averageRating = 0.0;
 
@@ -88,7 +114,7 @@ public class Product {
     private String tags;
 
     @CreationTimestamp
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
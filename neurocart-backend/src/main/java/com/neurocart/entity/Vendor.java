@@ -44,7 +44,8 @@ public class Vendor {
     @Builder.Default
     private VendorStatus status = VendorStatus.PENDING;
 
-    @Column(name = "total_sales")
+    // Maintained by the vendor-sales outbox handler; an entity save must not write back a stale copy
+    @Column(name = "total_sales", updatable = false)
     @Builder.Default
     private Double totalSales = 0.0;
 
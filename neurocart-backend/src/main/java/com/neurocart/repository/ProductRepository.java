@@ -3,38 +3,132 @@ package com.neurocart.repository;
 import com.neurocart.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    // Listing reads map to ProductSummary, which needs the category name
+    @Override
+    @EntityGraph(attributePaths = "category")
+    List<Product> findAllById(Iterable<Long> ids);
+
+    // Detail reads map to ProductResponse: category, vendor and images in one query
+    @EntityGraph(attributePaths = { "category", "vendor", "additionalImages" })
+    Optional<Product> findWithDetailsById(Long id);
+
+    @EntityGraph(attributePaths = "category")
     Page<Product> findByActiveTrue(Pageable pageable);
 
+    @EntityGraph(attributePaths = "category")
     Page<Product> findByCategoryIdAndActiveTrue(Long categoryId, Pageable pageable);
 
+    @EntityGraph(attributePaths = "category")
     Page<Product> findByVendorIdAndActiveTrue(Long vendorId, Pageable pageable);
 
+    @EntityGraph(attributePaths = "category")
     List<Product> findByFeaturedTrueAndActiveTrueOrderByCreatedAtDesc();
 
+    List<Product> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.active = true AND " +
             "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(p.tags) LIKE LOWER(CONCAT('%', :keyword, '%')))")
     Page<Product> searchProducts(@Param("keyword") String keyword, Pageable pageable);
 
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.active = true AND p.stockQuantity <= :threshold ORDER BY p.stockQuantity ASC")
     List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
 
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.demandCount DESC")
     List<Product> findTopByDemand(Pageable pageable);
 
+    @EntityGraph(attributePaths = "category")
     List<Product> findByCategoryIdAndActiveTrueAndIdNot(Long categoryId, Long productId);
 
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.averageRating DESC")
     List<Product> findTopRatedProducts(Pageable pageable);
+
+    // ── Keyset (seek) pagination: no OFFSET and no COUNT ─────────────────────
+    // One query per sort key, with and without a category, so each is a single
+    // range seek on its composite index. The first page passes an upper bound
+    // instead of a cursor. Sort keys are NOT NULL.
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.active = true " +
+            "AND (p.createdAt < :lastCreatedAt OR (p.createdAt = :lastCreatedAt AND p.id < :lastId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Product> findNextByCreatedAt(@Param("lastCreatedAt") LocalDateTime lastCreatedAt,
+            @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.active = true " +
+            "AND (p.createdAt < :lastCreatedAt OR (p.createdAt = :lastCreatedAt AND p.id < :lastId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Product> findNextInCategoryByCreatedAt(@Param("categoryId") Long categoryId,
+            @Param("lastCreatedAt") LocalDateTime lastCreatedAt, @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.active = true " +
+            "AND (p.currentPrice < :lastPrice OR (p.currentPrice = :lastPrice AND p.id < :lastId)) " +
+            "ORDER BY p.currentPrice DESC, p.id DESC")
+    Slice<Product> findNextByCurrentPrice(@Param("lastPrice") BigDecimal lastPrice,
+            @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.active = true " +
+            "AND (p.currentPrice < :lastPrice OR (p.currentPrice = :lastPrice AND p.id < :lastId)) " +
+            "ORDER BY p.currentPrice DESC, p.id DESC")
+    Slice<Product> findNextInCategoryByCurrentPrice(@Param("categoryId") Long categoryId,
+            @Param("lastPrice") BigDecimal lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.active = true " +
+            "AND (p.averageRating < :lastRating OR (p.averageRating = :lastRating AND p.id < :lastId)) " +
+            "ORDER BY p.averageRating DESC, p.id DESC")
+    Slice<Product> findNextByAverageRating(@Param("lastRating") Double lastRating,
+            @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.active = true " +
+            "AND (p.averageRating < :lastRating OR (p.averageRating = :lastRating AND p.id < :lastId)) " +
+            "ORDER BY p.averageRating DESC, p.id DESC")
+    Slice<Product> findNextInCategoryByAverageRating(@Param("categoryId") Long categoryId,
+            @Param("lastRating") Double lastRating, @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.active = true " +
+            "AND (p.demandCount < :lastDemand OR (p.demandCount = :lastDemand AND p.id < :lastId)) " +
+            "ORDER BY p.demandCount DESC, p.id DESC")
+    Slice<Product> findNextByDemandCount(@Param("lastDemand") Integer lastDemand,
+            @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.active = true " +
+            "AND (p.demandCount < :lastDemand OR (p.demandCount = :lastDemand AND p.id < :lastId)) " +
+            "ORDER BY p.demandCount DESC, p.id DESC")
+    Slice<Product> findNextInCategoryByDemandCount(@Param("categoryId") Long categoryId,
+            @Param("lastDemand") Integer lastDemand, @Param("lastId") Long lastId, Pageable pageable);
+
+    // Rows written before the sort keys were NOT NULL; a NULL key drops out of every keyset comparison
+    @Modifying
+    @Query(value = "UPDATE products SET average_rating = COALESCE(average_rating, 0), " +
+            "demand_count = COALESCE(demand_count, 0), " +
+            "created_at = COALESCE(created_at, updated_at, CURRENT_TIMESTAMP) " +
+            "WHERE average_rating IS NULL OR demand_count IS NULL OR created_at IS NULL", nativeQuery = true)
+    int backfillSortKeys();
 }
@@ -1,6 +1,7 @@
 package com.neurocart.repository;
 
 import com.neurocart.entity.ProductView;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +14,7 @@ import java.util.Optional;
 public interface ProductViewRepository extends JpaRepository<ProductView, Long> {
     Optional<ProductView> findByUserIdAndProductId(Long userId, Long productId);
 
+    @EntityGraph(attributePaths = "product")
     @Query("SELECT pv FROM ProductView pv WHERE pv.user.id = :userId ORDER BY pv.lastViewedAt DESC")
     List<ProductView> findRecentViewsByUserId(@Param("userId") Long userId,
             org.springframework.data.domain.Pageable pageable);
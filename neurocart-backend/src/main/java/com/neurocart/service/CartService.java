@@ -6,46 +6,143 @@ import com.neurocart.entity.Product;
 import com.neurocart.entity.User;
 import com.neurocart.exception.BadRequestException;
 import com.neurocart.exception.ResourceNotFoundException;
-import com.neurocart.repository.CartRepository;
 import com.neurocart.repository.ProductRepository;
+import com.neurocart.util.LatencyHistogram;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class CartService {
 
-    private final CartRepository cartRepository;
+    private static final int ENRICHMENT_THREADS = 8;
+    private static final int ENRICHMENT_QUEUE = 256;
+
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
     private final SmartCartService smartCartService;
 
+    @Value("${neurocart.cart.enrichment-budget-ms:200}")
+    private long enrichmentBudgetMs;
+
+    private final ExecutorService enrichmentExecutor = new ThreadPoolExecutor(ENRICHMENT_THREADS, ENRICHMENT_THREADS,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(ENRICHMENT_QUEUE), r -> {
+                Thread t = new Thread(r, "cart-enrichment");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final LatencyHistogram itemsLatency = new LatencyHistogram();
+    private final LatencyHistogram alternativesLatency = new LatencyHistogram();
+    private final LatencyHistogram bundlesLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final LongAdder partialResponses = new LongAdder();
+
     public CartDTO.CartSummary getCart(User user) {
-        List<Cart> cartItems = cartRepository.findByUserId(user.getId());
+        return summarize(getUserCartItems(user));
+    }
+
+    private CartDTO.CartSummary summarize(List<Cart> cartItems) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(enrichmentBudgetMs);
+
+        // Smart cart optimization runs alongside the line mapping, within the time budget
+        Future<List<CartDTO.SmartSuggestion>> alternatives = submitStage(alternativesLatency,
+                () -> smartCartService.findAlternatives(cartItems));
+        Future<List<CartDTO.BundleSuggestion>> bundles = submitStage(bundlesLatency,
+                () -> smartCartService.findBundles(cartItems));
+
+        long itemsStart = System.nanoTime();
         List<CartDTO.CartResponse> responses = cartItems.stream().map(this::toCartResponse)
                 .collect(Collectors.toList());
         BigDecimal subtotal = responses.stream()
                 .map(CartDTO.CartResponse::getTotalPrice)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        itemsLatency.record(System.nanoTime() - itemsStart);
 
-        // Smart cart optimization
-        List<CartDTO.SmartSuggestion> alternatives = smartCartService.findAlternatives(cartItems);
-        List<CartDTO.BundleSuggestion> bundles = smartCartService.findBundles(cartItems);
+        List<CartDTO.SmartSuggestion> alternativeSuggestions = awaitStage(alternatives, deadline);
+        List<CartDTO.BundleSuggestion> bundleSuggestions = awaitStage(bundles, deadline);
+        boolean partial = alternativeSuggestions == null || bundleSuggestions == null;
+        if (partial)
+            partialResponses.increment();
+        totalLatency.record(System.nanoTime() - start);
 
         return CartDTO.CartSummary.builder()
                 .items(responses)
                 .subtotal(subtotal)
                 .itemCount(cartItems.size())
-                .alternativeSuggestions(alternatives)
-                .bundleSuggestions(bundles)
+                .alternativeSuggestions(alternativeSuggestions != null ? alternativeSuggestions : List.of())
+                .bundleSuggestions(bundleSuggestions != null ? bundleSuggestions : List.of())
+                .partial(partial)
                 .build();
     }
 
-    @Transactional
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("budgetMs", enrichmentBudgetMs);
+        stats.put("partialResponses", partialResponses.sum());
+        stats.put("items", itemsLatency.snapshot());
+        stats.put("alternatives", alternativesLatency.snapshot());
+        stats.put("bundles", bundlesLatency.snapshot());
+        stats.put("total", totalLatency.snapshot());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        enrichmentExecutor.shutdownNow();
+    }
+
+    private <T> Future<T> submitStage(LatencyHistogram latency, Callable<T> stage) {
+        try {
+            return enrichmentExecutor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return stage.call();
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Saturated: skip the suggestion rather than queue behind other carts
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Null if the stage failed or missed the deadline; suggestions are optional. */
+    private <T> T awaitStage(Future<T> stage, long deadlineNanos) {
+        try {
+            return stage.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            stage.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stage.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Cart suggestion stage failed: {}", e.getCause().toString());
+            return null;
+        }
+    }
+
     public CartDTO.CartResponse addToCart(User user, CartDTO.CartRequest request) {
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product", request.getProductId()));
@@ -56,45 +153,125 @@ public class CartService {
             throw new BadRequestException("Only " + product.getStockQuantity() + " units available in stock");
         }
 
-        Cart cart = cartRepository.findByUserIdAndProductId(user.getId(), product.getId())
-                .orElse(Cart.builder().user(user).product(product).build());
-
-        int newQty = cart.getId() != null ? cart.getQuantity() + request.getQuantity() : request.getQuantity();
-        if (newQty > product.getStockQuantity()) {
-            throw new BadRequestException(
-                    "Cannot add more than available stock (" + product.getStockQuantity() + " units)");
-        }
-
-        cart.setQuantity(newQty);
-        cart.setPriceSnapshot(product.getCurrentPrice());
-        return toCartResponse(cartRepository.save(cart));
+        CartStore.Line line = cartStore.update(user.getId(), product.getId(), current -> {
+            int newQty = current != null ? current.quantity() + request.getQuantity() : request.getQuantity();
+            if (newQty > product.getStockQuantity()) {
+                throw new BadRequestException(
+                        "Cannot add more than available stock (" + product.getStockQuantity() + " units)");
+            }
+            return new CartStore.Line(product.getId(), newQty, product.getCurrentPrice(),
+                    current != null ? current.addedAt() : LocalDateTime.now());
+        });
+        return toCartResponse(toCart(user, line, product));
     }
 
-    @Transactional
     public CartDTO.CartResponse updateCartItem(User user, Long productId, int quantity) {
-        Cart cart = cartRepository.findByUserIdAndProductId(user.getId(), productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
-        Product product = cart.getProduct();
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", productId));
         if (quantity > product.getStockQuantity()) {
             throw new BadRequestException("Only " + product.getStockQuantity() + " units available");
         }
-        cart.setQuantity(quantity);
-        cart.setPriceSnapshot(product.getCurrentPrice());
-        return toCartResponse(cartRepository.save(cart));
+        CartStore.Line line = cartStore.update(user.getId(), productId, current -> {
+            if (current == null)
+                throw new ResourceNotFoundException("Cart item not found");
+            return new CartStore.Line(productId, quantity, product.getCurrentPrice(), current.addedAt());
+        });
+        return toCartResponse(toCart(user, line, product));
+    }
+
+    /**
+     * Applies the operations in order against one snapshot of the cart. Every
+     * referenced product and every product already in the cart is loaded in
+     * a single query; any failing operation rejects the whole batch.
+     */
+    public CartDTO.CartSummary applyBatch(User user, CartDTO.BatchRequest request) {
+        Set<Long> productIds = new HashSet<>();
+        cartStore.lines(user.getId()).forEach(line -> productIds.add(line.productId()));
+        request.getOperations().forEach(op -> productIds.add(op.getProductId()));
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<CartStore.Line> lines = cartStore.apply(user.getId(), cart -> {
+            List<CartDTO.BatchOperation> operations = request.getOperations();
+            for (int i = 0; i < operations.size(); i++) {
+                try {
+                    applyOperation(cart, operations.get(i), products);
+                } catch (BadRequestException | ResourceNotFoundException e) {
+                    throw new BadRequestException("Operation " + i + ": " + e.getMessage());
+                }
+            }
+        });
+        return summarize(lines.stream()
+                .filter(line -> products.containsKey(line.productId()))
+                .map(line -> toCart(user, line, products.get(line.productId())))
+                .collect(Collectors.toList()));
+    }
+
+    private void applyOperation(Map<Long, CartStore.Line> cart, CartDTO.BatchOperation op,
+            Map<Long, Product> products) {
+        Long productId = op.getProductId();
+        CartStore.Line current = cart.get(productId);
+        if (op.getType() == CartDTO.BatchOperation.Type.REMOVE) {
+            cart.remove(productId);
+            return;
+        }
+        Product product = products.get(productId);
+        if (product == null)
+            throw new ResourceNotFoundException("Product", productId);
+
+        int newQty;
+        if (op.getType() == CartDTO.BatchOperation.Type.ADD) {
+            if (!product.isActive())
+                throw new BadRequestException("Product is no longer available");
+            newQty = current != null ? current.quantity() + op.getQuantity() : op.getQuantity();
+        } else {
+            if (current == null)
+                throw new ResourceNotFoundException("Cart item not found");
+            newQty = op.getQuantity();
+        }
+        if (newQty > product.getStockQuantity()) {
+            throw new BadRequestException("Only " + product.getStockQuantity() + " units available for "
+                    + product.getName());
+        }
+        cart.put(productId, new CartStore.Line(productId, newQty, product.getCurrentPrice(),
+                current != null ? current.addedAt() : LocalDateTime.now()));
     }
 
-    @Transactional
     public void removeFromCart(User user, Long productId) {
-        cartRepository.deleteByUserIdAndProductId(user.getId(), productId);
+        cartStore.remove(user.getId(), List.of(productId));
     }
 
-    @Transactional
     public void clearCart(User user) {
-        cartRepository.deleteByUserId(user.getId());
+        cartStore.clear(user.getId());
     }
 
+    /**
+     * Cart lines from the store joined with their products in one query.
+     * Called inside a transaction, the products are managed entities.
+     */
     public List<Cart> getUserCartItems(User user) {
-        return cartRepository.findByUserId(user.getId());
+        List<CartStore.Line> lines = cartStore.lines(user.getId());
+        if (lines.isEmpty())
+            return List.of();
+        Map<Long, Product> products = productRepository
+                .findAllById(lines.stream().map(CartStore.Line::productId).toList()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return lines.stream()
+                .map(line -> products.containsKey(line.productId())
+                        ? toCart(user, line, products.get(line.productId()))
+                        : null)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Cart toCart(User user, CartStore.Line line, Product product) {
+        return Cart.builder()
+                .user(user)
+                .product(product)
+                .quantity(line.quantity())
+                .priceSnapshot(line.priceSnapshot())
+                .addedAt(line.addedAt())
+                .build();
     }
 
     private CartDTO.CartResponse toCartResponse(Cart cart) {
@@ -103,7 +280,7 @@ public class CartService {
         BigDecimal total = unitPrice.multiply(BigDecimal.valueOf(cart.getQuantity()));
         boolean stockWarning = p.getStockQuantity() <= 5;
         return CartDTO.CartResponse.builder()
-                .id(cart.getId())
+                .id(p.getId())
                 .productId(p.getId())
                 .productName(p.getName())
                 .productImage(p.getImageUrl())
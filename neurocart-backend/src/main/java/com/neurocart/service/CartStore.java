@@ -0,0 +1,343 @@
+package com.neurocart.service;
+
+import com.neurocart.util.LatencyHistogram;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-memory carts with write-behind persistence to the {@code cart} table.
+ * <p>
+ * Carts live in {@link #SHARDS} maps keyed by user id and are loaded from the
+ * table on first access. Mutations apply immediately and mark the touched
+ * lines dirty; a scheduled flush writes each dirty line once (upsert or
+ * delete) in JDBC batches, so repeated edits between flushes coalesce. The
+ * flush interval is the durability bound: a crash loses at most that window
+ * of cart edits, and the table is the recovery source on restart. A batch
+ * rejected by a constraint is retried line by line, and lines the table
+ * will never accept (say, a product deleted meanwhile) are dropped from
+ * write-behind, so one bad line cannot hold back every other cart. Carts
+ * idle longer than the eviction window are dropped once they are clean.
+ * Carts are node-local, so multi-node deployments need user-sticky routing.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartStore {
+
+    private static final int SHARDS = 64;
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private static final String LOAD_SQL = "SELECT product_id, quantity, price_snapshot, added_at FROM cart "
+            + "WHERE user_id = ? ORDER BY added_at, id";
+    private static final String UPSERT_SQL = "INSERT INTO cart (user_id, product_id, quantity, price_snapshot, "
+            + "added_at, updated_at) VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "quantity = VALUES(quantity), price_snapshot = VALUES(price_snapshot), updated_at = VALUES(updated_at)";
+    private static final String DELETE_SQL = "DELETE FROM cart WHERE user_id = ? AND product_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${neurocart.cart.idle-eviction-minutes:30}")
+    private long idleEvictionMinutes;
+
+    private final List<Map<Long, UserCart>> shards = new ArrayList<>(SHARDS);
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final AtomicLong upserts = new AtomicLong();
+    private final AtomicLong deletes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    {
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    public record Line(long productId, int quantity, BigDecimal priceSnapshot, LocalDateTime addedAt) {
+    }
+
+    private static final class UserCart {
+        final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+        final Set<Long> dirtyProducts = new HashSet<>();
+        int flushesInFlight;
+        boolean evicted;
+        volatile long lastAccessMillis = System.currentTimeMillis();
+    }
+
+    // ── Reads and mutations ──
+
+    public List<Line> lines(long userId) {
+        return withCart(userId, cart -> new ArrayList<>(cart.lines.values()));
+    }
+
+    /**
+     * Replaces one line with whatever {@code change} returns for the current
+     * line (null if absent); returning null removes it. Runs under the
+     * cart's lock, so check-then-set logic in {@code change} is atomic.
+     */
+    public Line update(long userId, long productId, Function<Line, Line> change) {
+        return withCart(userId, cart -> {
+            Line updated = change.apply(cart.lines.get(productId));
+            if (updated == null) {
+                cart.lines.remove(productId);
+            } else {
+                cart.lines.put(productId, updated);
+            }
+            markDirty(userId, cart, productId);
+            return updated;
+        });
+    }
+
+    /**
+     * Runs {@code change} on a copy of the cart's lines and installs the
+     * result only if it returns normally, so multi-line edits are
+     * all-or-nothing. Returns the resulting lines.
+     */
+    public List<Line> apply(long userId, Consumer<Map<Long, Line>> change) {
+        return withCart(userId, cart -> {
+            Map<Long, Line> working = new LinkedHashMap<>(cart.lines);
+            change.accept(working);
+            for (Long productId : cart.lines.keySet()) {
+                if (!working.containsKey(productId))
+                    markDirty(userId, cart, productId);
+            }
+            working.forEach((productId, line) -> {
+                if (!line.equals(cart.lines.get(productId)))
+                    markDirty(userId, cart, productId);
+            });
+            cart.lines.clear();
+            cart.lines.putAll(working);
+            return new ArrayList<>(working.values());
+        });
+    }
+
+    public void remove(long userId, Collection<Long> productIds) {
+        withCart(userId, cart -> {
+            for (Long productId : productIds) {
+                if (cart.lines.remove(productId) != null)
+                    markDirty(userId, cart, productId);
+            }
+            return null;
+        });
+    }
+
+    public void clear(long userId) {
+        withCart(userId, cart -> {
+            cart.lines.keySet().forEach(productId -> markDirty(userId, cart, productId));
+            cart.lines.clear();
+            return null;
+        });
+    }
+
+    /** Ordered lines leave the cart once the order has committed. */
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        remove(event.userId(), event.productIds());
+    }
+
+    // ── Write-behind ──
+
+    @Scheduled(fixedDelayString = "${neurocart.cart.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushLock.tryLock())
+            return;
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMinutes * 60_000;
+        for (Map<Long, UserCart> shard : shards) {
+            shard.entrySet().removeIf(e -> {
+                UserCart cart = e.getValue();
+                if (cart.lastAccessMillis >= cutoff)
+                    return false;
+                synchronized (cart) {
+                    if (!cart.dirtyProducts.isEmpty() || cart.flushesInFlight > 0)
+                        return false;
+                    cart.evicted = true;
+                }
+                evictions.incrementAndGet();
+                return true;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("residentCarts", shards.stream().mapToInt(Map::size).sum());
+        stats.put("dirtyCarts", dirtyUsers.size());
+        stats.put("upserts", upserts.get());
+        stats.put("deletes", deletes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("droppedLines", droppedLines.get());
+        stats.put("evictions", evictions.get());
+        stats.put("flushLatency", flushLatency.snapshot());
+        return stats;
+    }
+
+    private void flushLocked() {
+        if (dirtyUsers.isEmpty())
+            return;
+        long start = System.nanoTime();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upsertArgs = new ArrayList<>();
+        List<Object[]> deleteArgs = new ArrayList<>();
+        Map<Long, Set<Long>> taken = new HashMap<>();
+
+        for (Iterator<Long> it = dirtyUsers.iterator(); it.hasNext();) {
+            long userId = it.next();
+            it.remove();
+            UserCart cart = shard(userId).get(userId);
+            if (cart == null)
+                continue;
+            synchronized (cart) {
+                if (cart.dirtyProducts.isEmpty())
+                    continue;
+                for (Long productId : cart.dirtyProducts) {
+                    Line line = cart.lines.get(productId);
+                    if (line == null) {
+                        deleteArgs.add(new Object[] { userId, productId });
+                    } else {
+                        upsertArgs.add(new Object[] { userId, productId, line.quantity(), line.priceSnapshot(),
+                                Timestamp.valueOf(line.addedAt()), now });
+                    }
+                }
+                taken.put(userId, new HashSet<>(cart.dirtyProducts));
+                cart.dirtyProducts.clear();
+                cart.flushesInFlight++;
+            }
+        }
+
+        // Lines to mark dirty again; all of them unless the writes get through
+        Map<Long, Set<Long>> retry = taken;
+        try {
+            if (!upsertArgs.isEmpty())
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upsertArgs, WRITE_BATCH_SIZE, (ps, args) -> {
+                    for (int i = 0; i < args.length; i++)
+                        ps.setObject(i + 1, args[i]);
+                });
+            if (!deleteArgs.isEmpty())
+                jdbcTemplate.batchUpdate(DELETE_SQL, deleteArgs, WRITE_BATCH_SIZE, (ps, args) -> {
+                    ps.setLong(1, (Long) args[0]);
+                    ps.setLong(2, (Long) args[1]);
+                });
+            upserts.addAndGet(upsertArgs.size());
+            deletes.addAndGet(deleteArgs.size());
+            retry = Map.of();
+        } catch (DataIntegrityViolationException e) {
+            // One bad line fails the whole batch; retry individually to find it. Upserts
+            // and deletes are idempotent, so lines from chunks that did commit are harmless.
+            failedFlushes.incrementAndGet();
+            retry = new HashMap<>();
+            writeEach(UPSERT_SQL, upsertArgs, upserts, retry);
+            writeEach(DELETE_SQL, deleteArgs, deletes, retry);
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Cart flush failed, {} carts will be retried: {}", taken.size(), e.getMessage());
+        } finally {
+            for (Long userId : taken.keySet()) {
+                UserCart cart = shard(userId).get(userId);
+                synchronized (cart) {
+                    cart.flushesInFlight--;
+                    Set<Long> failed = retry.get(userId);
+                    if (failed != null) {
+                        cart.dirtyProducts.addAll(failed);
+                        dirtyUsers.add(userId);
+                    }
+                }
+            }
+            flushLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void writeEach(String sql, List<Object[]> rows, AtomicLong written, Map<Long, Set<Long>> retry) {
+        for (Object[] args : rows) {
+            try {
+                jdbcTemplate.update(sql, args);
+                written.incrementAndGet();
+            } catch (DataIntegrityViolationException e) {
+                // Retrying cannot help; the line stays in memory and is written again if edited
+                droppedLines.incrementAndGet();
+                log.warn("Dropping cart line user={} product={} from write-behind: {}", args[0], args[1],
+                        NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            } catch (RuntimeException e) {
+                retry.computeIfAbsent((Long) args[0], k -> new HashSet<>()).add((Long) args[1]);
+            }
+        }
+    }
+
+    // ── Internals ──
+
+    private <T> T withCart(long userId, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = shard(userId).get(userId);
+            if (cart == null) {
+                UserCart loaded = load(userId);
+                UserCart existing = shard(userId).putIfAbsent(userId, loaded);
+                cart = existing != null ? existing : loaded;
+            }
+            synchronized (cart) {
+                if (cart.evicted)
+                    continue;
+                cart.lastAccessMillis = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    private UserCart load(long userId) {
+        UserCart cart = new UserCart();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            Timestamp addedAt = rs.getTimestamp(4);
+            long productId = rs.getLong(1);
+            cart.lines.put(productId, new Line(productId, rs.getInt(2), rs.getBigDecimal(3),
+                    addedAt != null ? addedAt.toLocalDateTime() : LocalDateTime.now()));
+        }, userId);
+        return cart;
+    }
+
+    private void markDirty(long userId, UserCart cart, long productId) {
+        cart.dirtyProducts.add(productId);
+        dirtyUsers.add(userId);
+    }
+
+    private Map<Long, UserCart> shard(long userId) {
+        return shards.get((int) Math.floorMod(userId, (long) SHARDS));
+    }
+}
@@ -0,0 +1,153 @@
+package com.neurocart.service;
+
+import com.neurocart.exception.TooManyRequestsException;
+import com.neurocart.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of order placement. At most
+ * {@code max-concurrent} checkouts run at once, so a flash sale cannot take
+ * every pooled connection from browsing; up to {@code max-queue} more wait
+ * in FIFO order on a fair semaphore for at most {@code max-wait}. Anything
+ * beyond that is turned away at once with 429 and a Retry-After estimated
+ * from recent checkout times.
+ * <p>
+ * Queued checkouts park Tomcat request threads, so startup fails unless
+ * running plus queued checkouts fit in half of
+ * {@code server.tomcat.threads.max}; the rest stay free for browsing.
+ */
+@Component
+public class CheckoutAdmission {
+
+    // Queue depth seen on arrival, bucketed as 0, 1, 2-3, 4-7, ... 512+
+    private static final int DEPTH_BUCKETS = 11;
+    private static final long MAX_RETRY_AFTER_SECONDS = 30;
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private final LongAdder[] queueDepth = new LongAdder[DEPTH_BUCKETS];
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram checkoutTime = new LatencyHistogram();
+    // Smoothed checkout time, only used for the Retry-After hint
+    private final AtomicLong recentCheckoutMicros = new AtomicLong(100_000);
+
+    public CheckoutAdmission(@Value("${neurocart.checkout.admission.enabled:true}") boolean enabled,
+            @Value("${neurocart.checkout.admission.max-concurrent:6}") int maxConcurrent,
+            @Value("${neurocart.checkout.admission.max-queue:24}") int maxQueue,
+            @Value("${neurocart.checkout.admission.max-wait:300ms}") Duration maxWait,
+            @Value("${server.tomcat.threads.max:200}") int requestThreads) {
+        if (enabled && maxConcurrent + maxQueue > requestThreads / 2)
+            throw new IllegalStateException("Checkout admission would hold " + (maxConcurrent + maxQueue)
+                    + " of " + requestThreads + " request threads; keep max-concurrent + max-queue at or below "
+                    + requestThreads / 2);
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrent, true);
+        for (int i = 0; i < DEPTH_BUCKETS; i++)
+            queueDepth[i] = new LongAdder();
+    }
+
+    public <T> T call(Supplier<T> checkout) {
+        if (!enabled)
+            return checkout.get();
+
+        long arrived = System.nanoTime();
+        try {
+            acquire();
+        } finally {
+            waitTime.record(System.nanoTime() - arrived);
+        }
+
+        admitted.increment();
+        long start = System.nanoTime();
+        try {
+            return checkout.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            permits.release();
+            checkoutTime.record(elapsed);
+            long micros = elapsed / 1000;
+            recentCheckoutMicros.getAndUpdate(recent -> recent + (micros - recent) / 8);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("maxQueue", maxQueue);
+        stats.put("running", maxConcurrent - permits.availablePermits());
+        stats.put("queued", waiting.get());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejectedQueueFull", rejectedQueueFull.sum());
+        stats.put("rejectedTimeout", rejectedTimeout.sum());
+        Map<String, Long> depth = new LinkedHashMap<>();
+        for (int i = 0; i < DEPTH_BUCKETS; i++) {
+            String label = i == 0 ? "0" : i == 1 ? "1" : i == DEPTH_BUCKETS - 1 ? (1 << (i - 1)) + "+"
+                    : (1 << (i - 1)) + "-" + ((1 << i) - 1);
+            depth.put(label, queueDepth[i].sum());
+        }
+        stats.put("queueDepthOnArrival", depth);
+        stats.put("wait", waitTime.snapshot());
+        stats.put("checkout", checkoutTime.snapshot());
+        return stats;
+    }
+
+    private void acquire() {
+        try {
+            // A free permit is taken without queueing; a zero timeout still honours the fair ordering
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                queueDepth[0].increment();
+                return;
+            }
+            int ahead = waiting.getAndIncrement();
+            try {
+                queueDepth[depthBucket(ahead)].increment();
+                if (ahead >= maxQueue) {
+                    rejectedQueueFull.increment();
+                    throw new TooManyRequestsException("Checkout is busy, please retry shortly", retryAfter(ahead));
+                }
+                if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                    rejectedTimeout.increment();
+                    throw new TooManyRequestsException("Checkout is busy, please retry shortly", retryAfter(ahead));
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException("Checkout was interrupted while queued", 1);
+        }
+    }
+
+    /** Roughly how long the current queue takes to drain. */
+    private long retryAfter(int ahead) {
+        long drainMicros = recentCheckoutMicros.get() * (ahead + 1) / maxConcurrent;
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, (drainMicros + 999_999) / 1_000_000));
+    }
+
+    private static int depthBucket(int depth) {
+        return depth == 0 ? 0 : Math.min(DEPTH_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(depth));
+    }
+}
@@ -0,0 +1,230 @@
+package com.neurocart.service;
+
+import com.neurocart.util.LongIntHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Frequent-pair miner over order lines. Pair counts live in a primitive
+ * long-to-int map keyed by the packed (smaller id, larger id); each product
+ * keeps its top {@link #TOP_K} companions by count as an immutable array
+ * that readers take without locking.
+ * <p>
+ * Counts only grow, so top-K can be maintained exactly: the only candidate
+ * for entry is the pair just incremented.
+ * <p>
+ * Every node tails the {@code orders} table by id, so each index sees every
+ * order no matter which node placed it. Everything at or below the
+ * high-water mark has been mined exactly once; ids below the newest visible
+ * order that are not visible yet (transactions still committing) are kept
+ * as gaps and retried until they show up or time out as rolled back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoPurchaseIndex {
+
+    public static final int TOP_K = 10;
+    // Large orders contribute quadratically many pairs; beyond this they are mostly noise
+    private static final int MAX_PRODUCTS_PER_ORDER = 50;
+    private static final int TAIL_RANGE = 5000;
+    private static final long GAP_TIMEOUT_MS = 60_000;
+    private static final int MAX_GAPS = 10_000;
+
+    private static final String MAX_ID_SQL = "SELECT MAX(id) FROM orders";
+    // One statement per range, so an order is seen with all of its lines or not at all
+    private static final String RANGE_SQL = "SELECT o.id, o.status, oi.product_id FROM orders o "
+            + "JOIN order_items oi ON oi.order_id = o.id WHERE o.id > ? AND o.id <= ? ORDER BY o.id";
+    private static final String GAPS_SQL = "SELECT o.id, o.status, oi.product_id FROM orders o "
+            + "JOIN order_items oi ON oi.order_id = o.id WHERE o.id IN (%s) ORDER BY o.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LongIntHashMap pairCounts = new LongIntHashMap(1 << 16);
+    private final Map<Long, Companions> companions = new ConcurrentHashMap<>();
+    private final AtomicLong ordersMined = new AtomicLong();
+
+    // Tail state, guarded by tailLock
+    private final ReentrantLock tailLock = new ReentrantLock();
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private volatile long highWaterMark;
+
+    /** Companion ids and co-purchase counts, sorted by count descending. */
+    public record Companions(long[] productIds, int[] counts) {
+        static final Companions EMPTY = new Companions(new long[0], new int[0]);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        tailLock.lock();
+        try {
+            tailLocked();
+        } finally {
+            tailLock.unlock();
+        }
+        log.info("Co-purchase index built: {} orders, {} pairs, {} products in {} ms", ordersMined.get(),
+                pairCount(), companions.size(), System.currentTimeMillis() - start);
+    }
+
+    /** Mines orders committed since the last pass, on this node and every other. */
+    @Scheduled(fixedDelayString = "${neurocart.bundles.poll-interval-ms:2000}")
+    public void tail() {
+        if (!tailLock.tryLock())
+            return;
+        try {
+            tailLocked();
+        } finally {
+            tailLock.unlock();
+        }
+    }
+
+    public Companions companionsOf(long productId) {
+        return companions.getOrDefault(productId, Companions.EMPTY);
+    }
+
+    public synchronized void addOrder(Collection<Long> productIds) {
+        long[] basket = productIds.stream().distinct()
+                .filter(id -> id > 0 && id <= Integer.MAX_VALUE)
+                .limit(MAX_PRODUCTS_PER_ORDER)
+                .mapToLong(Long::longValue).sorted().toArray();
+        if (basket.length == 0)
+            return;
+        ordersMined.incrementAndGet();
+        for (int i = 0; i < basket.length; i++) {
+            for (int j = i + 1; j < basket.length; j++) {
+                int count = pairCounts.addTo(basket[i] << 32 | basket[j], 1);
+                offer(basket[i], basket[j], count);
+                offer(basket[j], basket[i], count);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ordersMined", ordersMined.get());
+        stats.put("pairs", pairCount());
+        stats.put("products", companions.size());
+        stats.put("highWaterMark", highWaterMark);
+        stats.put("pendingGaps", gapCount());
+        return stats;
+    }
+
+    private int gapCount() {
+        tailLock.lock();
+        try {
+            return gaps.size();
+        } finally {
+            tailLock.unlock();
+        }
+    }
+
+    private void tailLocked() {
+        retryGaps();
+        Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+        long newest = maxId != null ? maxId : 0L;
+        while (highWaterMark < newest) {
+            long from = highWaterMark;
+            long to = Math.min(newest, from + TAIL_RANGE);
+            Set<Long> seen = mine(jdbcTemplate.query(RANGE_SQL, this::collectBaskets, from, to));
+            long now = System.currentTimeMillis();
+            for (long id = from + 1; id <= to; id++) {
+                if (!seen.contains(id))
+                    gaps.put(id, now);
+            }
+            highWaterMark = to;
+        }
+        trimGaps();
+    }
+
+    private void retryGaps() {
+        if (gaps.isEmpty())
+            return;
+        List<Long> ids = new ArrayList<>(gaps.keySet());
+        for (int from = 0; from < ids.size(); from += 1000) {
+            List<Long> chunk = ids.subList(from, Math.min(from + 1000, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            mine(jdbcTemplate.query(String.format(GAPS_SQL, placeholders), this::collectBaskets, chunk.toArray()))
+                    .forEach(gaps::remove);
+        }
+    }
+
+    /** Rolled-back inserts leave permanent holes in the id sequence; stop waiting for them eventually. */
+    private void trimGaps() {
+        long expired = System.currentTimeMillis() - GAP_TIMEOUT_MS;
+        Iterator<Map.Entry<Long, Long>> it = gaps.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> gap = it.next();
+            if (gap.getValue() >= expired && gaps.size() <= MAX_GAPS)
+                break;
+            it.remove();
+        }
+    }
+
+    /** Groups the joined rows by order; cancelled orders count as seen but contribute no pairs. */
+    private Map<Long, List<Long>> collectBaskets(ResultSet rs) throws SQLException {
+        Map<Long, List<Long>> baskets = new LinkedHashMap<>();
+        while (rs.next()) {
+            List<Long> basket = baskets.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>());
+            if (!"CANCELLED".equals(rs.getString(2)))
+                basket.add(rs.getLong(3));
+        }
+        return baskets;
+    }
+
+    private Set<Long> mine(Map<Long, List<Long>> baskets) {
+        baskets.values().forEach(this::addOrder);
+        return baskets.keySet();
+    }
+
+    private synchronized int pairCount() {
+        return pairCounts.size();
+    }
+
+    /** Called with the new count of (product, companion); keeps the top-K array sorted. */
+    private void offer(long productId, long companionId, int count) {
+        Companions current = companions.getOrDefault(productId, Companions.EMPTY);
+        long[] ids = current.productIds();
+        int[] counts = current.counts();
+        int n = ids.length;
+
+        int at = -1;
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == companionId) {
+                at = i;
+                break;
+            }
+        }
+        if (at < 0) {
+            if (n == TOP_K && counts[n - 1] >= count)
+                return;
+            at = Math.min(n, TOP_K - 1);
+            ids = Arrays.copyOf(ids, Math.min(n + 1, TOP_K));
+            counts = Arrays.copyOf(counts, ids.length);
+        } else {
+            ids = ids.clone();
+            counts = counts.clone();
+        }
+        // Bubble the updated entry up to its sorted position
+        while (at > 0 && counts[at - 1] < count) {
+            ids[at] = ids[at - 1];
+            counts[at] = counts[at - 1];
+            at--;
+        }
+        ids[at] = companionId;
+        counts[at] = count;
+        companions.put(productId, new Companions(ids, counts));
+    }
+}
@@ -5,10 +5,13 @@ import com.neurocart.exception.BadRequestException;
 import com.neurocart.exception.ResourceNotFoundException;
 import com.neurocart.repository.CouponRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -16,7 +19,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CouponService {
 
+    private static final String REDEEM_SQL = "UPDATE coupons SET used_count = COALESCE(used_count, 0) + 1, "
+            + "updated_at = ? WHERE code = ? AND (usage_limit IS NULL OR COALESCE(used_count, 0) < usage_limit)";
+
     private final CouponRepository couponRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     public BigDecimal calculateDiscount(String code, BigDecimal orderAmount) {
         Coupon coupon = couponRepository.findByCode(code.toUpperCase())
@@ -47,12 +54,15 @@ public class CouponService {
         return discount.setScale(2, java.math.RoundingMode.HALF_UP);
     }
 
-    @Transactional
-    public void incrementUsage(String code) {
-        couponRepository.findByCode(code.toUpperCase()).ifPresent(coupon -> {
-            coupon.setUsedCount(coupon.getUsedCount() + 1);
-            couponRepository.save(coupon);
-        });
+    /**
+     * Counts one use in the caller's order transaction. The limit check is part
+     * of the UPDATE, so concurrent checkouts cannot redeem past it; the loser's
+     * order rolls back. {@link #calculateDiscount} only fails fast.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void redeem(String code) {
+        if (jdbcTemplate.update(REDEEM_SQL, Timestamp.valueOf(LocalDateTime.now()), code.toUpperCase()) != 1)
+            throw new BadRequestException("Coupon usage limit reached");
     }
 
     public Coupon getCouponByCode(String code) {
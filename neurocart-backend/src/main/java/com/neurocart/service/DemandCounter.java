@@ -0,0 +1,155 @@
+package com.neurocart.service;
+
+import com.neurocart.util.LatencyHistogram;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for product demand (view) counts.
+ * <p>
+ * Views increment a per-product {@link LongAdder} instead of updating the row,
+ * and deltas are flushed as one batched {@code UPDATE ... SET demand_count = demand_count + ?}
+ * on a schedule or once the buffered total crosses the threshold.
+ * <p>
+ * Durability: demand is a ranking/pricing signal, not a ledger. Increments are
+ * at-most-once: a crash loses at most the deltas buffered since the last flush
+ * (one flush interval), and a failed flush re-buffers its deltas. A graceful
+ * shutdown flushes everything. An increment racing the removal of an idle
+ * counter may be dropped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DemandCounter {
+
+    private static final String FLUSH_SQL = "UPDATE products SET demand_count = demand_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${neurocart.demand.flush-threshold:10000}")
+    private long flushThreshold;
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final LongAdder bufferedDelta = new LongAdder();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "demand-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final AtomicLong flushedDelta = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile LocalDateTime lastFlushAt;
+
+    public void increment(Long productId) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        bufferedDelta.increment();
+        if (bufferedDelta.sum() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /** Demand recorded for the product that has not reached the database yet. */
+    public long pending(Long productId) {
+        LongAdder adder = pending.get(productId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    @Scheduled(fixedDelayString = "${neurocart.demand.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    public void flush() {
+        if (!flushLock.tryLock())
+            return;
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bufferedProducts", pending.size());
+        stats.put("bufferedDelta", bufferedDelta.sum());
+        stats.put("flushThreshold", flushThreshold);
+        stats.put("flushedDelta", flushedDelta.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("lastFlushAt", lastFlushAt);
+        stats.put("flushLatency", flushLatency.snapshot());
+        return stats;
+    }
+
+    private void flushLocked() {
+        // Sorted by id so concurrent flushes from other nodes lock rows in the same order
+        SortedMap<Long, Long> deltas = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                deltas.put(entry.getKey(), delta);
+            } else if (pending.remove(entry.getKey(), entry.getValue())) {
+                long late = entry.getValue().sum();
+                if (late > 0)
+                    pending.computeIfAbsent(entry.getKey(), id -> new LongAdder()).add(late);
+            }
+        }
+        if (deltas.isEmpty())
+            return;
+
+        long total = deltas.values().stream().mapToLong(Long::longValue).sum();
+        bufferedDelta.add(-total);
+        long start = System.nanoTime();
+        try {
+            List<Object[]> args = new ArrayList<>(deltas.size());
+            deltas.forEach((id, delta) -> args.add(new Object[] { delta, id }));
+            jdbcTemplate.batchUpdate(FLUSH_SQL, args);
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            deltas.forEach((id, delta) -> pending.computeIfAbsent(id, k -> new LongAdder()).add(delta));
+            bufferedDelta.add(total);
+            log.warn("Demand flush of {} products failed, deltas re-buffered: {}", deltas.size(), e.getMessage());
+            return;
+        } finally {
+            flushLatency.record(System.nanoTime() - start);
+        }
+        flushedDelta.addAndGet(total);
+        lastFlushAt = LocalDateTime.now();
+        eventPublisher.publishEvent(new DemandFlushedEvent(Collections.unmodifiableMap(deltas)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.neurocart.service;
+
+import java.util.Map;
+
+/**
+ * Published after buffered demand increments have been written to the
+ * products table. Carries the increment per product id, so in-memory views
+ * can apply it without reloading the rows.
+ */
+public record DemandFlushedEvent(Map<Long, Long> deltas) {
+}
@@ -0,0 +1,517 @@
+package com.neurocart.service;
+
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.exception.ResourceNotFoundException;
+import com.neurocart.exception.ServiceUnavailableException;
+import com.neurocart.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Opt-in inventory for flash-sale products. Enabling a product moves its
+ * stock into N padded in-memory shards that checkouts decrement with CAS,
+ * so orders for that product stop contending on its {@code products} row.
+ * <p>
+ * A scheduled reconcile writes the units consumed since the last pass back
+ * to {@code stock_quantity} in one UPDATE, folds in explicit stock edits
+ * (tracked in {@code restocked_units}) and evens out the shards. A rise of
+ * the stock column alone is never trusted, since it may be a stale write of
+ * units already sold. Reservations made inside an order transaction are
+ * returned if it rolls back. The row lags the ledger by up to one reconcile
+ * interval, which is also the window of unflushed sales lost if the process
+ * dies.
+ * <p>
+ * The row still holds the units the shards hand out, so only one node may
+ * run the ledger. Enabling leases the product on its row
+ * ({@code hot_stock_owner}, {@code hot_stock_until}, database clock); every
+ * reconcile renews the lease, and row deductions on any node skip a product
+ * whose lease is live. Past its local deadline (nine tenths of
+ * {@code neurocart.inventory.hot-lease-seconds}) a ledger stops reserving,
+ * and a ledger whose lease could not be renewed is flushed and dropped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotStockLedger {
+
+    public enum Result { NOT_HOT, RESERVED, SOLD_OUT }
+
+    private static final String CONSUME_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, "
+            + "updated_at = ? WHERE id = ?";
+    private static final String ROW_SQL = "SELECT stock_quantity, restocked_units FROM products WHERE id = ?";
+    private static final String CLAIM_SQL = "UPDATE products SET hot_stock_owner = ?, "
+            + "hot_stock_until = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) WHERE id = ? "
+            + "AND (hot_stock_until IS NULL OR hot_stock_until < CURRENT_TIMESTAMP)";
+    // An expired lease is not revived: another node may have sold from the row since
+    private static final String RENEW_SQL = "UPDATE products SET "
+            + "hot_stock_until = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) WHERE id = ? AND hot_stock_owner = ? "
+            + "AND hot_stock_until >= CURRENT_TIMESTAMP";
+    private static final String RELEASE_SQL = "UPDATE products SET hot_stock_owner = NULL, hot_stock_until = NULL "
+            + "WHERE id = ? AND hot_stock_owner = ?";
+
+    // Shard counters sit 64 bytes apart so checkouts on different shards do not share a cache line
+    private static final int STRIDE = 8;
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${neurocart.inventory.hot-shards:16}")
+    private int defaultShards;
+
+    @Value("${neurocart.inventory.hot-lease-seconds:30}")
+    private long leaseSeconds;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private final Map<Long, Ledger> ledgers = new ConcurrentHashMap<>();
+    // Units that came back after their ledger closed, waiting to be written to the row
+    private final Map<Long, LongAdder> unreturned = new ConcurrentHashMap<>();
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+    private final LongAdder released = new LongAdder();
+
+    // ── Checkout path ──
+
+    /**
+     * Takes {@code quantity} units of a hot product for the current
+     * transaction; they are handed back if it does not commit. NOT_HOT means
+     * the caller should deduct from the row as usual.
+     */
+    public Result reserve(long productId, int quantity) {
+        Ledger ledger = ledgers.get(productId);
+        if (ledger == null)
+            return Result.NOT_HOT;
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("Hot stock reservations need an active transaction");
+        if (System.nanoTime() - ledger.validUntilNanos >= 0)
+            throw new ServiceUnavailableException("Stock for this product is being reconciled, please retry");
+
+        Result result = ledger.take(quantity);
+        if (result == Result.RESERVED) {
+            reserved.increment();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED)
+                        release(ledger, quantity);
+                }
+            });
+        } else if (result == Result.SOLD_OUT) {
+            soldOut.increment();
+        }
+        return result;
+    }
+
+    private void release(Ledger ledger, int quantity) {
+        released.increment();
+        if (!ledger.giveBack(quantity))
+            returnToRow(ledger.productId, quantity);
+    }
+
+    /**
+     * For units taken from a ledger that has since closed; its final flush
+     * counted them as sold. Callers are finishing (or inside) an order
+     * transaction whose connection is still bound, so the reconciler writes
+     * them back on its own.
+     */
+    private void returnToRow(long productId, long quantity) {
+        unreturned.computeIfAbsent(productId, id -> new LongAdder()).add(quantity);
+    }
+
+    // ── Admin ──
+
+    public Map<String, Object> enable(long productId, Integer shards) {
+        int n = shards != null ? shards : defaultShards;
+        if (n < 1 || n > 256)
+            throw new BadRequestException("Shard count must be between 1 and 256");
+        reconcileLock.lock();
+        try {
+            if (ledgers.containsKey(productId))
+                throw new BadRequestException("Product " + productId + " is already in hot-stock mode");
+            long deadline = deadline();
+            if (jdbcTemplate.update(CLAIM_SQL, owner, leaseSeconds, productId) == 0) {
+                readRow(productId);
+                throw new BadRequestException("Product " + productId + " is in hot-stock mode on another node");
+            }
+            // Read after the claim, so no row deduction lands between the read and the lease
+            Row row = readRow(productId);
+            Ledger ledger = new Ledger(productId, n);
+            ledger.validUntilNanos = deadline;
+            ledger.add(row.stock());
+            ledger.allocated = row.stock();
+            ledger.lastRowStock = row.stock();
+            ledger.lastRestocked = row.restocked();
+            ledgers.put(productId, ledger);
+            log.info("Hot-stock mode on for product {}: {} units over {} shards", productId, row.stock(), n);
+            return ledger.stats();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /** Flushes the ledger to the row and returns the product to row-level deduction. */
+    public Map<String, Object> disable(long productId) {
+        reconcileLock.lock();
+        try {
+            Ledger ledger = ledgers.get(productId);
+            if (ledger == null)
+                throw new ResourceNotFoundException("Product " + productId + " is not in hot-stock mode");
+            try {
+                flushConsumed(ledger, ledger.close());
+                jdbcTemplate.update(RELEASE_SQL, productId, owner);
+            } finally {
+                ledgers.remove(productId);
+                ledger.closed.countDown();
+            }
+            publishProduct(productId);
+            log.info("Hot-stock mode off for product {}", productId);
+            return ledger.stats();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reserved", reserved.sum());
+        stats.put("soldOut", soldOut.sum());
+        stats.put("released", released.sum());
+        Map<Long, Object> products = new LinkedHashMap<>();
+        ledgers.forEach((id, ledger) -> products.put(id, ledger.stats()));
+        stats.put("products", products);
+        return stats;
+    }
+
+    // ── Reconciliation ──
+
+    @Scheduled(fixedDelayString = "${neurocart.inventory.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        if ((ledgers.isEmpty() && unreturned.isEmpty()) || !reconcileLock.tryLock())
+            return;
+        try {
+            writeUnreturned();
+            for (Ledger ledger : ledgers.values()) {
+                try {
+                    if (!reconcile(ledger))
+                        drop(ledger);
+                } catch (RuntimeException e) {
+                    log.warn("Hot-stock reconcile failed for product {}: {}", ledger.productId, e.getMessage());
+                }
+            }
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileLock.lock();
+        try {
+            for (Ledger ledger : ledgers.values()) {
+                try {
+                    flushConsumed(ledger, ledger.close());
+                    jdbcTemplate.update(RELEASE_SQL, ledger.productId, owner);
+                } catch (RuntimeException e) {
+                    log.warn("Hot-stock shutdown flush failed for product {}: {}", ledger.productId, e.getMessage());
+                } finally {
+                    ledger.closed.countDown();
+                }
+            }
+            ledgers.clear();
+            writeUnreturned();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /** Returns false once the product's lease is lost; sales up to here are already flushed. */
+    private boolean reconcile(Ledger ledger) {
+        long remaining = ledger.remaining();
+        long consumed = flushConsumed(ledger, remaining);
+        long deadline = deadline();
+        if (jdbcTemplate.update(RENEW_SQL, leaseSeconds, ledger.productId, owner) == 0)
+            return false;
+        ledger.validUntilNanos = deadline;
+
+        // Explicit stock edits since the last pass are applied to the ledger
+        Row row = readRow(ledger.productId);
+        long drift = row.restocked() - ledger.lastRestocked;
+        if (drift > 0) {
+            ledger.add(drift);
+            ledger.allocated += drift;
+        } else if (drift < 0) {
+            long taken = ledger.drain(-drift);
+            ledger.allocated -= taken;
+            if (taken < -drift)
+                log.warn("Product {} stock cut by {} but only {} units were still unsold", ledger.productId,
+                        -drift, taken);
+        }
+        ledger.lastRestocked = row.restocked();
+        ledger.lastRowStock = row.stock();
+        ledger.rebalance();
+
+        if (drift != 0)
+            publishProduct(ledger.productId);
+        else if (consumed != 0)
+            eventPublisher.publishEvent(new StockChangedEvent(new long[] { ledger.productId },
+                    new int[] { Math.toIntExact(row.stock()) }));
+        return true;
+    }
+
+    /**
+     * The lease expired (the reconciler stalled or the database was out of
+     * reach) and other nodes may already sell from the row: seal the shards,
+     * write back what they sold and return to row deduction.
+     */
+    private void drop(Ledger ledger) {
+        log.warn("Hot-stock lease for product {} lapsed; switching it back to row deduction", ledger.productId);
+        try {
+            flushConsumed(ledger, ledger.close());
+        } finally {
+            ledgers.remove(ledger.productId);
+            ledger.closed.countDown();
+        }
+        jdbcTemplate.update(RELEASE_SQL, ledger.productId, owner);
+        publishProduct(ledger.productId);
+    }
+
+    // Taken before the statement runs, so it never outlasts the expiry the database writes
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds) * 9 / 10;
+    }
+
+    /**
+     * Writes {@code allocated - remaining} to the row. Takes after the shards
+     * were read show up in the next pass, so each unit is flushed once.
+     */
+    private long flushConsumed(Ledger ledger, long remaining) {
+        long consumed = ledger.allocated - remaining;
+        if (consumed != 0) {
+            jdbcTemplate.update(CONSUME_SQL, consumed, Timestamp.valueOf(LocalDateTime.now()), ledger.productId);
+            ledger.allocated = remaining;
+            ledger.lastRowStock -= consumed;
+        }
+        return consumed;
+    }
+
+    private void writeUnreturned() {
+        for (Map.Entry<Long, LongAdder> entry : unreturned.entrySet()) {
+            // Entries are kept once created; there is one per product that was ever switched off mid-checkout
+            long quantity = entry.getValue().sumThenReset();
+            if (quantity == 0)
+                continue;
+            try {
+                jdbcTemplate.update(CONSUME_SQL, -quantity, Timestamp.valueOf(LocalDateTime.now()), entry.getKey());
+            } catch (RuntimeException e) {
+                entry.getValue().add(quantity);
+                log.warn("Returning {} units to product {} failed, will retry: {}", quantity, entry.getKey(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    private record Row(long stock, long restocked) {
+    }
+
+    private Row readRow(long productId) {
+        Row row = jdbcTemplate.query(ROW_SQL, rs -> rs.next() ? new Row(rs.getLong(1), rs.getLong(2)) : null,
+                productId);
+        if (row == null)
+            throw new ResourceNotFoundException("Product", productId);
+        return row;
+    }
+
+    private void publishProduct(long productId) {
+        productRepository.findById(productId).ifPresent(p -> eventPublisher.publishEvent(new ProductChangedEvent(p)));
+    }
+
+    /** Per-product shard counters; a closed shard holds {@link #CLOSED}. */
+    private final class Ledger {
+        final long productId;
+        final int shards;
+        final AtomicLongArray units;
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile long validUntilNanos;
+        // Reconciler-only state, guarded by reconcileLock
+        long allocated;
+        long lastRowStock;
+        long lastRestocked;
+
+        Ledger(long productId, int shards) {
+            this.productId = productId;
+            this.shards = shards;
+            this.units = new AtomicLongArray(shards * STRIDE);
+        }
+
+        Result take(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(shards);
+            for (int k = 0; k < shards; k++) {
+                int i = ((start + k) % shards) * STRIDE;
+                long v;
+                while ((v = units.get(i)) >= quantity) {
+                    if (units.compareAndSet(i, v, v - quantity))
+                        return Result.RESERVED;
+                }
+                if (v == CLOSED)
+                    return awaitClose();
+            }
+            return gather(start, quantity);
+        }
+
+        /** No single shard had enough: collect from several, or put everything back. */
+        private Result gather(int start, int quantity) {
+            long[] takenFrom = new long[shards];
+            long needed = quantity;
+            for (int k = 0; k < shards && needed > 0; k++) {
+                int s = (start + k) % shards;
+                long v;
+                while ((v = units.get(s * STRIDE)) > 0) {
+                    long part = Math.min(v, needed);
+                    if (units.compareAndSet(s * STRIDE, v, v - part)) {
+                        takenFrom[s] = part;
+                        needed -= part;
+                        break;
+                    }
+                }
+                if (v == CLOSED) {
+                    restore(takenFrom);
+                    return awaitClose();
+                }
+            }
+            if (needed == 0)
+                return Result.RESERVED;
+            restore(takenFrom);
+            return Result.SOLD_OUT;
+        }
+
+        private void restore(long[] takenFrom) {
+            for (int s = 0; s < shards; s++) {
+                if (takenFrom[s] > 0 && !addTo(s, takenFrom[s]))
+                    returnToRow(productId, takenFrom[s]);
+            }
+        }
+
+        /** Row deduction is only safe once the closing flush has committed. */
+        private Result awaitClose() {
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while hot-stock mode was switching off", e);
+            }
+            return Result.NOT_HOT;
+        }
+
+        boolean giveBack(long quantity) {
+            return addTo(ThreadLocalRandom.current().nextInt(shards), quantity);
+        }
+
+        private boolean addTo(int shard, long quantity) {
+            int i = shard * STRIDE;
+            long v;
+            do {
+                v = units.get(i);
+                if (v == CLOSED)
+                    return false;
+            } while (!units.compareAndSet(i, v, v + quantity));
+            return true;
+        }
+
+        long remaining() {
+            long sum = 0;
+            for (int s = 0; s < shards; s++)
+                sum += Math.max(0, units.get(s * STRIDE));
+            return sum;
+        }
+
+        /** Spreads {@code quantity} evenly; reconciler only. */
+        void add(long quantity) {
+            for (int s = 0; s < shards; s++) {
+                long share = quantity / shards + (s < quantity % shards ? 1 : 0);
+                if (share > 0)
+                    addTo(s, share);
+            }
+        }
+
+        /** Removes up to {@code quantity} unsold units; returns how many it got. */
+        long drain(long quantity) {
+            long taken = 0;
+            for (int s = 0; s < shards && taken < quantity; s++) {
+                int i = s * STRIDE;
+                long v;
+                while ((v = units.get(i)) > 0) {
+                    long part = Math.min(v, quantity - taken);
+                    if (units.compareAndSet(i, v, v - part)) {
+                        taken += part;
+                        break;
+                    }
+                }
+            }
+            return taken;
+        }
+
+        /** Moves surplus from rich shards to poor ones so single-shard takes keep succeeding. */
+        void rebalance() {
+            long target = remaining() / shards;
+            long pool = 0;
+            for (int s = 0; s < shards; s++) {
+                int i = s * STRIDE;
+                long v;
+                while ((v = units.get(i)) > target + 1) {
+                    if (units.compareAndSet(i, v, target)) {
+                        pool += v - target;
+                        break;
+                    }
+                }
+            }
+            for (int s = 0; s < shards && pool > 0; s++) {
+                long part = Math.min(pool, target - units.get(s * STRIDE));
+                if (part > 0 && addTo(s, part))
+                    pool -= part;
+            }
+            if (pool > 0)
+                addTo(0, pool);
+        }
+
+        /** Seals every shard and returns the unsold units; later takes wait for the closing flush. */
+        long close() {
+            long left = 0;
+            for (int s = 0; s < shards; s++)
+                left += Math.max(0, units.getAndSet(s * STRIDE, CLOSED));
+            return left;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("shards", shards);
+            stats.put("remaining", remaining());
+            stats.put("rowStock", lastRowStock);
+            return stats;
+        }
+    }
+}
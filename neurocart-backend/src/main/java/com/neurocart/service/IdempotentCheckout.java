@@ -0,0 +1,242 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neurocart.dto.OrderDTO;
+import com.neurocart.entity.User;
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.exception.ServiceUnavailableException;
+import com.neurocart.exception.UnprocessableEntityException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idempotency-Key handling for checkout. An in-memory LRU maps (user, key)
+ * to the future of the first attempt, so concurrent duplicates on this node
+ * wait for it and receive the same response. Completed checkouts are also
+ * recorded in {@code idempotency_keys} inside the order transaction, which
+ * covers retries after a restart or on another node. Failed attempts are
+ * not remembered; the client may retry them with the same key. A key is
+ * bound to a hash of the request body it was first used with; reusing it
+ * with a different body is rejected with 422 rather than replaying an order
+ * the client did not ask for. The table lookups run under
+ * {@link CheckoutAdmission}, so a rejected checkout costs no database round
+ * trip.
+ */
+@Service
+@Slf4j
+public class IdempotentCheckout {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final String INSERT_SQL = "INSERT INTO idempotency_keys (user_id, idem_key, request_hash, "
+            + "order_id, response, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String FIND_SQL = "SELECT request_hash, response FROM idempotency_keys "
+            + "WHERE user_id = ? AND idem_key = ? AND created_at >= ?";
+    private static final String DELETE_EXPIRED_KEY_SQL = "DELETE FROM idempotency_keys "
+            + "WHERE user_id = ? AND idem_key = ? AND created_at < ?";
+    private static final int PURGE_CHUNK = 5000;
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE created_at < ? LIMIT " + PURGE_CHUNK;
+
+    private final OrderService orderService;
+    private final CheckoutAdmission checkoutAdmission;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Duration waitTimeout;
+    private final Cache<String, InFlight> inFlight;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong replayedFromMemory = new AtomicLong();
+    private final AtomicLong replayedFromTable = new AtomicLong();
+    private final AtomicLong mismatched = new AtomicLong();
+
+    public record Outcome(OrderDTO.OrderResponse order, boolean replayed) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<OrderDTO.OrderResponse> order) {
+    }
+
+    private record Recorded(String requestHash, OrderDTO.OrderResponse order) {
+    }
+
+    public IdempotentCheckout(OrderService orderService, CheckoutAdmission checkoutAdmission,
+            JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            @Value("${neurocart.idempotency.retention:24h}") Duration retention,
+            @Value("${neurocart.idempotency.max-keys:100000}") long maxKeys,
+            @Value("${neurocart.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.orderService = orderService;
+        this.checkoutAdmission = checkoutAdmission;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.waitTimeout = waitTimeout;
+        this.inFlight = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    public Outcome placeOrder(User user, OrderDTO.PlaceOrderRequest request, String key) {
+        if (key == null)
+            return new Outcome(checkoutAdmission.call(() -> orderService.placeOrder(user, request)), false);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new BadRequestException("Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+
+        String cacheKey = user.getId() + ":" + key;
+        String requestHash = hash(request);
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight first = inFlight.asMap().putIfAbsent(cacheKey, mine);
+        if (first != null) {
+            checkSameRequest(first.requestHash(), requestHash);
+            replayedFromMemory.incrementAndGet();
+            return new Outcome(await(first.order()), true);
+        }
+
+        try {
+            Outcome outcome = executeOnce(user, request, key, requestHash);
+            mine.order().complete(outcome.order());
+            return outcome;
+        } catch (RuntimeException e) {
+            inFlight.asMap().remove(cacheKey, mine);
+            mine.order().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Runs inside the order transaction, so the key commits or rolls back with the order. */
+    private void record(Long userId, String key, String requestHash, OrderDTO.OrderResponse order) {
+        jdbcTemplate.update(INSERT_SQL, userId, key, requestHash, order.getId(), write(order),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purge() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        int removed;
+        do {
+            removed = jdbcTemplate.update(PURGE_SQL, cutoff);
+        } while (removed == PURGE_CHUNK);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedKeys", inFlight.estimatedSize());
+        stats.put("executed", executed.get());
+        stats.put("replayedFromMemory", replayedFromMemory.get());
+        stats.put("replayedFromTable", replayedFromTable.get());
+        stats.put("mismatchedRequests", mismatched.get());
+        stats.put("retention", retention.toString());
+        return stats;
+    }
+
+    // Admitted as a whole, so the key lookups wait their turn with the order they guard
+    private Outcome executeOnce(User user, OrderDTO.PlaceOrderRequest request, String key, String requestHash) {
+        return checkoutAdmission.call(() -> executeAdmitted(user, request, key, requestHash));
+    }
+
+    private Outcome executeAdmitted(User user, OrderDTO.PlaceOrderRequest request, String key,
+            String requestHash) {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        Recorded recorded = findRecorded(user.getId(), key, cutoff);
+        if (recorded != null)
+            return replay(recorded, requestHash);
+        // A key older than the retention window may be reused
+        jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, user.getId(), key, cutoff);
+        try {
+            executed.incrementAndGet();
+            return new Outcome(orderService.placeOrder(user, request,
+                    order -> record(user.getId(), key, requestHash, order)), false);
+        } catch (RuntimeException e) {
+            // Another node committed the same key first: our insert hit its key, or our attempt
+            // found the cart it had already emptied. Its order stands and ours rolled back.
+            recorded = findRecorded(user.getId(), key, cutoff);
+            if (recorded == null)
+                throw e;
+            return replay(recorded, requestHash);
+        }
+    }
+
+    private Outcome replay(Recorded recorded, String requestHash) {
+        // Rows written before request hashes were recorded replay as before
+        if (recorded.requestHash() != null)
+            checkSameRequest(recorded.requestHash(), requestHash);
+        replayedFromTable.incrementAndGet();
+        return new Outcome(recorded.order(), true);
+    }
+
+    private void checkSameRequest(String firstHash, String requestHash) {
+        if (!firstHash.equals(requestHash)) {
+            mismatched.incrementAndGet();
+            throw new UnprocessableEntityException(
+                    "Idempotency-Key was already used with a different request body");
+        }
+    }
+
+    // Keys sorted, so the hash depends on the field values and not on serialization order
+    private String hash(OrderDTO.PlaceOrderRequest request) {
+        try {
+            Map<?, ?> fields = request == null ? Map.of() : objectMapper.convertValue(request, Map.class);
+            byte[] body = objectMapper.writeValueAsBytes(new TreeMap<>(fields));
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash checkout request", e);
+        }
+    }
+
+    private OrderDTO.OrderResponse await(CompletableFuture<OrderDTO.OrderResponse> first) {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("The original request with this Idempotency-Key is still running");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the original request");
+        } catch (ExecutionException e) {
+            // Same outcome as the first attempt; the key stays free for a fresh retry
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Recorded findRecorded(Long userId, String key, Timestamp cutoff) {
+        List<Recorded> rows = jdbcTemplate.query(FIND_SQL,
+                (rs, i) -> new Recorded(rs.getString(1), read(rs.getString(2))), userId, key, cutoff);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private String write(OrderDTO.OrderResponse order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot record order " + order.getId(), e);
+        }
+    }
+
+    private OrderDTO.OrderResponse read(String json) {
+        try {
+            return objectMapper.readValue(json, OrderDTO.OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable idempotency record", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.neurocart.service;
+
+/**
+ * Source of customer-facing order and tracking numbers. The scheme is picked
+ * with {@code neurocart.orders.id-scheme}: {@code snowflake} (default) or
+ * {@code uuid}.
+ */
+public interface OrderNumberGenerator {
+
+    String orderNumber();
+
+    String trackingNumber();
+}
@@ -0,0 +1,14 @@
+package com.neurocart.service;
+
+import java.util.List;
+
+/**
+ * Written by {@link OrderService#placeOrder} with the buyer and the ids of the
+ * products in the order. Delivered through the outbox to {@link OutboxHandler}s
+ * for {@link #TYPE}, and published in-process for node-local listeners, which
+ * run after the order transaction commits.
+ */
+public record OrderPlacedEvent(Long orderId, Long userId, List<Long> productIds) {
+
+    public static final String TYPE = "ORDER_PLACED";
+}
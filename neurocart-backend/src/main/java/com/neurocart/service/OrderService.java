@@ -4,37 +4,70 @@ import com.neurocart.dto.OrderDTO;
 import com.neurocart.entity.*;
 import com.neurocart.exception.BadRequestException;
 import com.neurocart.exception.ResourceNotFoundException;
+import com.neurocart.exception.ServiceUnavailableException;
 import com.neurocart.repository.*;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class OrderService {
 
+    private static final int SUMMARY_BACKFILL_CHUNK = 200;
+
+    // A product leased to another node's hot-stock ledger is not sold from the row
+    private static final String DEDUCT_STOCK_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, "
+            + "updated_at = ? WHERE id = ? AND stock_quantity >= ? "
+            + "AND (hot_stock_until IS NULL OR hot_stock_until < CURRENT_TIMESTAMP)";
+    private static final String HOT_ELSEWHERE_SQL = "SELECT COUNT(*) FROM products WHERE id = ? "
+            + "AND hot_stock_until >= CURRENT_TIMESTAMP";
+
     private final OrderRepository orderRepository;
-    private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
+    private final CartService cartService;
     private final CouponRepository couponRepository;
     private final CouponService couponService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final HotStockLedger hotStockLedger;
+    private final OutboxService outboxService;
+    private final OrderSummaryStore orderSummaryStore;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderNumberGenerator orderNumberGenerator;
 
     @Transactional
     public OrderDTO.OrderResponse placeOrder(User user, OrderDTO.PlaceOrderRequest request) {
-        List<Cart> cartItems = cartRepository.findByUserId(user.getId());
+        return placeOrder(user, request, order -> {
+        });
+    }
+
+    /** {@code beforeCommit} sees the placed order inside the transaction; if it throws, the order rolls back. */
+    @Transactional
+    public OrderDTO.OrderResponse placeOrder(User user, OrderDTO.PlaceOrderRequest request,
+            Consumer<OrderDTO.OrderResponse> beforeCommit) {
+        List<Cart> cartItems = cartService.getUserCartItems(user);
         if (cartItems.isEmpty())
             throw new BadRequestException("Cart is empty");
 
-        // Validate stock for all items
+        // Fail fast on what we read; the conditional deduction below is authoritative
         for (Cart item : cartItems) {
             Product p = item.getProduct();
             if (p.getStockQuantity() < item.getQuantity()) {
@@ -60,7 +93,7 @@ public class OrderService {
 
         // Build order
         Order order = Order.builder()
-                .orderNumber("NC-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+                .orderNumber(orderNumberGenerator.orderNumber())
                 .user(user)
                 .subtotal(subtotal)
                 .discountAmount(discount)
@@ -70,7 +103,7 @@ public class OrderService {
                 .shippingAddress(request.getShippingAddress())
                 .paymentMethod(request.getPaymentMethod() != null ? request.getPaymentMethod() : "CARD")
                 .paymentStatus("COMPLETED") // simulated payment
-                .trackingNumber("TRK-" + UUID.randomUUID().toString().substring(0, 10).toUpperCase())
+                .trackingNumber(orderNumberGenerator.trackingNumber())
                 .notes(request.getNotes())
                 .build();
 
@@ -87,24 +120,115 @@ public class OrderService {
                     .totalPrice(p.getCurrentPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
                     .build();
             order.getOrderItems().add(oi);
-            p.setStockQuantity(p.getStockQuantity() - item.getQuantity());
-            productRepository.save(p);
         }
+        List<Cart> rowDeducted = deductStock(cartItems);
+        // After the product rows, so every checkout takes row locks in the same order
+        if (couponCode != null && !couponCode.isBlank())
+            couponService.redeem(couponCode);
 
-        // Increment coupon usage
-        if (couponCode != null && !couponCode.isBlank()) {
-            couponService.incrementUsage(couponCode);
+        Order saved = orderRepository.saveAndFlush(order);
+        publishStockChanges(rowDeducted);
+        // Follow-ups run from the outbox after commit; the cart store drops the
+        // ordered lines once this commits
+        OrderPlacedEvent placed = new OrderPlacedEvent(saved.getId(), user.getId(),
+                cartItems.stream().map(c -> c.getProduct().getId()).toList());
+        outboxService.enqueue(OrderPlacedEvent.TYPE, saved.getId(), placed);
+        eventPublisher.publishEvent(placed);
+
+        OrderDTO.OrderResponse response = toOrderResponse(saved);
+        orderSummaryStore.write(user.getId(), response);
+        beforeCommit.accept(response);
+        return response;
+    }
+
+    /**
+     * Hot products are taken from the in-memory ledger; the rest get one
+     * conditional UPDATE per line, sent as a single batch in product id order
+     * so concurrent checkouts lock rows consistently. A line that lost a race
+     * matches no row; the exception rolls back the whole order, and ledger
+     * reservations are handed back on rollback. Returns the row-deducted lines.
+     */
+    private List<Cart> deductStock(List<Cart> cartItems) {
+        List<Cart> lines = new ArrayList<>();
+        for (Cart item : cartItems) {
+            Product p = item.getProduct();
+            switch (hotStockLedger.reserve(p.getId(), item.getQuantity())) {
+                case NOT_HOT -> lines.add(item);
+                case SOLD_OUT -> throw new BadRequestException("Insufficient stock for: " + p.getName());
+                case RESERVED -> {
+                }
+            }
         }
+        if (lines.isEmpty())
+            return lines;
+        lines.sort(Comparator.comparing(c -> c.getProduct().getId()));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] updated = jdbcTemplate.batchUpdate(DEDUCT_STOCK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Cart line = lines.get(i);
+                ps.setInt(1, line.getQuantity());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getProduct().getId());
+                ps.setInt(4, line.getQuantity());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 1)
+                continue;
+            Product p = lines.get(i).getProduct();
+            if (jdbcTemplate.queryForObject(HOT_ELSEWHERE_SQL, Integer.class, p.getId()) > 0)
+                throw new ServiceUnavailableException("Stock for " + p.getName() + " is held by a flash sale on "
+                        + "another server, please retry");
+            throw new BadRequestException("Insufficient stock for: " + p.getName());
+        }
+        return lines;
+    }
 
-        Order saved = orderRepository.save(order);
-        cartRepository.deleteByUserId(user.getId());
-        return toOrderResponse(saved);
+    /**
+     * Announces the new stock of the row-deducted products. Only stock moved,
+     * so the listeners are the stock-dependent views, not a full re-index.
+     */
+    private void publishStockChanges(List<Cart> cartItems) {
+        if (cartItems.isEmpty())
+            return;
+        long[] ids = cartItems.stream().mapToLong(c -> c.getProduct().getId()).distinct().toArray();
+        int[] stock = new int[ids.length];
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.length; i++)
+            positions.put(ids[i], i);
+        String placeholders = String.join(",", Collections.nCopies(ids.length, "?"));
+        jdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    stock[positions.get(rs.getLong(1))] = rs.getInt(2);
+                }, positions.keySet().toArray());
+        eventPublisher.publishEvent(new StockChangedEvent(ids, stock));
     }
 
     public Page<OrderDTO.OrderResponse> getUserOrders(User user, int page, int size) {
-        return orderRepository
-                .findByUserId(user.getId(), PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt")))
-                .map(this::toOrderResponse);
+        return orderSummaryStore.page(user.getId(), page, size);
+    }
+
+    public OrderDTO.OrderHistoryPage getOrderHistory(User user, String cursor, int size) {
+        return orderSummaryStore.history(user.getId(), cursor, size);
+    }
+
+    /** Renders summaries for orders placed before the read model existed, in chunks. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOrderSummaries() {
+        List<Long> missing = orderSummaryStore.missingOrderIds();
+        for (int from = 0; from < missing.size(); from += SUMMARY_BACKFILL_CHUNK) {
+            List<Long> chunk = missing.subList(from, Math.min(from + SUMMARY_BACKFILL_CHUNK, missing.size()));
+            transactionTemplate.executeWithoutResult(status -> orderRepository.findAllById(chunk)
+                    .forEach(o -> orderSummaryStore.write(o.getUser().getId(), toOrderResponse(o))));
+        }
+        if (!missing.isEmpty())
+            log.info("Backfilled {} order summaries", missing.size());
     }
 
     public OrderDTO.OrderResponse getOrderById(Long id, User user) {
@@ -127,7 +251,9 @@ public class OrderService {
             order.setShippedAt(LocalDateTime.now());
         if (newStatus == Order.OrderStatus.DELIVERED)
             order.setDeliveredAt(LocalDateTime.now());
-        return toOrderResponse(orderRepository.save(order));
+        OrderDTO.OrderResponse response = toOrderResponse(orderRepository.save(order));
+        orderSummaryStore.write(order.getUser().getId(), response);
+        return response;
     }
 
     private OrderDTO.OrderResponse toOrderResponse(Order o) {
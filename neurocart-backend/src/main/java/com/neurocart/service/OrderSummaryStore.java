@@ -0,0 +1,129 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neurocart.dto.OrderDTO;
+import com.neurocart.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Order history read model. Each order is stored once as its rendered JSON
+ * response next to (user_id, created_at), so a history page is one range
+ * scan on that index instead of loading orders, items and products.
+ * Written by {@link OrderService} in the transaction that changes the order.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderSummaryStore {
+
+    private static final String UPSERT_SQL = "INSERT INTO order_summaries (order_id, user_id, created_at, status, "
+            + "document) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE status = VALUES(status), "
+            + "document = VALUES(document)";
+    private static final String FIRST_SQL = "SELECT order_id, created_at, document FROM order_summaries "
+            + "WHERE user_id = ? ORDER BY created_at DESC, order_id DESC LIMIT ?";
+    private static final String NEXT_SQL = "SELECT order_id, created_at, document FROM order_summaries "
+            + "WHERE user_id = ? AND (created_at < ? OR (created_at = ? AND order_id < ?)) "
+            + "ORDER BY created_at DESC, order_id DESC LIMIT ?";
+    private static final String OFFSET_SQL = "SELECT order_id, created_at, document FROM order_summaries "
+            + "WHERE user_id = ? ORDER BY created_at DESC, order_id DESC LIMIT ? OFFSET ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM order_summaries WHERE user_id = ?";
+    private static final String MISSING_SQL = "SELECT o.id FROM orders o "
+            + "LEFT JOIN order_summaries s ON s.order_id = o.id WHERE s.order_id IS NULL ORDER BY o.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    private record Row(long orderId, LocalDateTime createdAt, OrderDTO.OrderResponse order) {
+    }
+
+    public void write(Long userId, OrderDTO.OrderResponse order) {
+        String document;
+        try {
+            document = objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot render order " + order.getId(), e);
+        }
+        jdbcTemplate.update(UPSERT_SQL, order.getId(), userId, Timestamp.valueOf(order.getCreatedAt()),
+                order.getStatus(), document);
+    }
+
+    public OrderDTO.OrderHistoryPage history(Long userId, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, 100));
+        // One extra row tells us whether another page follows
+        List<Row> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = jdbcTemplate.query(FIRST_SQL, rowMapper(), userId, limit + 1);
+        } else {
+            Row last = decodeCursor(cursor);
+            Timestamp at = Timestamp.valueOf(last.createdAt());
+            rows = jdbcTemplate.query(NEXT_SQL, rowMapper(), userId, at, at, last.orderId(), limit + 1);
+        }
+        boolean hasNext = rows.size() > limit;
+        List<Row> content = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Row last = content.get(content.size() - 1);
+            nextCursor = encodeCursor(last.createdAt(), last.orderId());
+        }
+        return OrderDTO.OrderHistoryPage.builder()
+                .content(content.stream().map(Row::order).toList())
+                .size(content.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /** Offset paging for the classic GET /orders contract; prefer {@link #history} for deep pages. */
+    public Page<OrderDTO.OrderResponse> page(Long userId, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
+        List<OrderDTO.OrderResponse> content = jdbcTemplate
+                .query(OFFSET_SQL, rowMapper(), userId, size, pageable.getOffset()).stream()
+                .map(Row::order)
+                .toList();
+        Long total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, userId);
+        return new PageImpl<>(content, pageable, total != null ? total : 0);
+    }
+
+    public List<Long> missingOrderIds() {
+        return jdbcTemplate.queryForList(MISSING_SQL, Long.class);
+    }
+
+    private RowMapper<Row> rowMapper() {
+        return (rs, i) -> {
+            try {
+                return new Row(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(),
+                        objectMapper.readValue(rs.getString(3), OrderDTO.OrderResponse.class));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unreadable summary for order " + rs.getLong(1), e);
+            }
+        };
+    }
+
+    private static String encodeCursor(LocalDateTime createdAt, long orderId) {
+        String raw = createdAt + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Row decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 2)
+                throw new BadRequestException("Invalid cursor");
+            return new Row(Long.parseLong(parts[1]), LocalDateTime.parse(parts[0]), null);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.neurocart.service;
+
+/**
+ * Receives outbox events of one type after the producing transaction has
+ * committed. Each handler gets its own outbox row, retried independently;
+ * rows for the same aggregate reach a handler in the order they were written.
+ * <p>
+ * Delivery is at-least-once. Database work done in {@link #handle} shares a
+ * transaction with marking the row done, so it happens exactly once; other
+ * effects must tolerate a repeat after a crash.
+ */
+public interface OutboxHandler<T> {
+
+    /** Stable id stored on the row; renaming it orphans pending rows. */
+    String name();
+
+    String eventType();
+
+    Class<T> payloadType();
+
+    void handle(T payload);
+}
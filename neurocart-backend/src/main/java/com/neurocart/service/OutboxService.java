@@ -0,0 +1,242 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neurocart.entity.OutboxEvent;
+import com.neurocart.repository.OutboxEventRepository;
+import com.neurocart.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox. {@link #enqueue} writes one row per registered
+ * handler inside the caller's transaction; {@link #dispatch} drains due rows
+ * in id order, each delivery in its own transaction together with marking
+ * the row done. Failures back off exponentially and end up DEAD after
+ * {@code max-attempts}; a later row for the same aggregate and handler waits
+ * until the earlier one is done or dead. A node only polls for rows of the
+ * handlers it has, so one that does not know a new handler leaves its rows
+ * alone during a rolling deploy.
+ */
+@Service
+@Slf4j
+public class OutboxService {
+
+    private static final String DUE_SQL = "SELECT id, handler, aggregate_id, payload, attempts, created_at "
+            + "FROM outbox_events WHERE status = 'PENDING' AND handler IN (%s) AND next_attempt_at <= ? "
+            + "ORDER BY id LIMIT ?";
+    private static final String HEADS_SQL = "SELECT aggregate_id, handler, MIN(id) FROM outbox_events "
+            + "WHERE status = 'PENDING' AND aggregate_id IN (%s) GROUP BY aggregate_id, handler";
+    // SKIP LOCKED lets several nodes drain the table without delivering a row twice
+    private static final String CLAIM_SQL = "SELECT status FROM outbox_events WHERE id = ? FOR UPDATE SKIP LOCKED";
+    private static final String DONE_SQL = "UPDATE outbox_events SET status = 'DONE', attempts = attempts + 1, "
+            + "processed_at = ? WHERE id = ?";
+    private static final String FAILED_SQL = "UPDATE outbox_events SET status = ?, attempts = ?, next_attempt_at = ?, "
+            + "last_error = ? WHERE id = ?";
+    private static final String BACKLOG_SQL = "SELECT COUNT(*), MIN(created_at) FROM outbox_events "
+            + "WHERE status = 'PENDING'";
+    private static final int PURGE_CHUNK = 5000;
+    private static final String PURGE_SQL = "DELETE FROM outbox_events WHERE status = 'DONE' AND processed_at < ? "
+            + "LIMIT " + PURGE_CHUNK;
+
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, OutboxHandler<?>> handlers;
+    private final Map<String, List<OutboxHandler<?>>> handlersByType;
+    private final String dueSql;
+
+    @Value("${neurocart.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${neurocart.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${neurocart.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final LatencyHistogram deliveryLag = new LatencyHistogram();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+
+    private record Pending(long id, String handler, long aggregateId, String payload, int attempts,
+            LocalDateTime createdAt) {
+    }
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+            List<OutboxHandler<?>> handlers) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.handlers = handlers.stream().collect(Collectors.toMap(OutboxHandler::name, h -> h));
+        this.handlersByType = handlers.stream().collect(Collectors.groupingBy(OutboxHandler::eventType));
+        this.dueSql = String.format(DUE_SQL, String.join(",", Collections.nCopies(handlers.size(), "?")));
+    }
+
+    // ── Producer side ──
+
+    /** Records {@code payload} for every handler of {@code eventType}; commits or rolls back with the caller. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String eventType, long aggregateId, Object payload) {
+        List<OutboxHandler<?>> targets = handlersByType.getOrDefault(eventType, List.of());
+        if (targets.isEmpty())
+            return;
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + eventType, e);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.saveAll(targets.stream()
+                .map(h -> OutboxEvent.builder()
+                        .eventType(eventType)
+                        .handler(h.name())
+                        .aggregateId(aggregateId)
+                        .payload(json)
+                        .nextAttemptAt(now)
+                        .build())
+                .toList());
+    }
+
+    // ── Dispatcher ──
+
+    @Scheduled(fixedDelayString = "${neurocart.outbox.poll-interval-ms:200}")
+    public void dispatch() {
+        if (handlers.isEmpty())
+            return;
+        List<Object> args = new ArrayList<>(handlers.keySet());
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.add(batchSize);
+        List<Pending> due = jdbcTemplate.query(dueSql, (rs, i) -> new Pending(rs.getLong(1), rs.getString(2),
+                rs.getLong(3), rs.getString(4), rs.getInt(5), rs.getTimestamp(6).toLocalDateTime()),
+                args.toArray());
+        if (due.isEmpty())
+            return;
+
+        Map<String, Long> heads = oldestPending(due);
+        Set<String> blocked = new HashSet<>();
+        for (Pending row : due) {
+            String key = row.aggregateId() + "/" + row.handler();
+            if (blocked.contains(key))
+                continue;
+            // An earlier row for this aggregate is still backing off; keep order
+            Long head = heads.remove(key);
+            if ((head != null && head < row.id()) || !deliver(row))
+                blocked.add(key);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purge() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays));
+        int removed;
+        do {
+            removed = jdbcTemplate.update(PURGE_SQL, cutoff);
+        } while (removed == PURGE_CHUNK);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        jdbcTemplate.query(BACKLOG_SQL, rs -> {
+            Timestamp oldest = rs.getTimestamp(2);
+            stats.put("pending", rs.getLong(1));
+            stats.put("oldestPendingAgeMs",
+                    oldest != null ? Duration.between(oldest.toLocalDateTime(), LocalDateTime.now()).toMillis() : 0);
+        });
+        stats.put("delivered", delivered.get());
+        stats.put("failures", failures.get());
+        stats.put("dead", dead.get());
+        stats.put("deliveryLag", deliveryLag.snapshot());
+        stats.put("handlers", new TreeSet<>(handlers.keySet()));
+        return stats;
+    }
+
+    private Map<String, Long> oldestPending(List<Pending> due) {
+        Set<Long> aggregates = due.stream().map(Pending::aggregateId).collect(Collectors.toSet());
+        String placeholders = String.join(",", Collections.nCopies(aggregates.size(), "?"));
+        Map<String, Long> heads = new HashMap<>();
+        jdbcTemplate.query(String.format(HEADS_SQL, placeholders),
+                rs -> {
+                    heads.put(rs.getLong(1) + "/" + rs.getString(2), rs.getLong(3));
+                }, aggregates.toArray());
+        return heads;
+    }
+
+    /** True once the row is done; false if it failed or another dispatcher holds it. */
+    private boolean deliver(Pending row) {
+        OutboxHandler<?> handler = handlers.get(row.handler());
+        try {
+            if (handler == null)
+                throw new IllegalStateException("No outbox handler named " + row.handler());
+            boolean done = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<String> claimed = jdbcTemplate.queryForList(CLAIM_SQL, String.class, row.id());
+                if (claimed.isEmpty() || !OutboxEvent.Status.PENDING.name().equals(claimed.get(0)))
+                    return false;
+                invoke(handler, row.payload());
+                jdbcTemplate.update(DONE_SQL, Timestamp.valueOf(LocalDateTime.now()), row.id());
+                return true;
+            }));
+            if (done) {
+                delivered.incrementAndGet();
+                deliveryLag.record(Duration.between(row.createdAt(), LocalDateTime.now()).toNanos());
+            }
+            return done;
+        } catch (RuntimeException e) {
+            recordFailure(row, e);
+            return false;
+        }
+    }
+
+    private <T> void invoke(OutboxHandler<T> handler, String payload) {
+        T event;
+        try {
+            event = objectMapper.readValue(payload, handler.payloadType());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable outbox payload for " + handler.name(), e);
+        }
+        handler.handle(event);
+    }
+
+    private void recordFailure(Pending row, RuntimeException e) {
+        failures.incrementAndGet();
+        int attempts = row.attempts() + 1;
+        boolean giveUp = attempts >= maxAttempts;
+        Duration backoff = BASE_BACKOFF.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(MAX_BACKOFF) > 0)
+            backoff = MAX_BACKOFF;
+        String error = String.valueOf(e.getMessage());
+        jdbcTemplate.update(FAILED_SQL,
+                (giveUp ? OutboxEvent.Status.DEAD : OutboxEvent.Status.PENDING).name(), attempts,
+                Timestamp.valueOf(LocalDateTime.now().plus(backoff)),
+                error.length() > 500 ? error.substring(0, 500) : error, row.id());
+        if (giveUp) {
+            dead.incrementAndGet();
+            log.error("Outbox row {} for {} failed {} times, giving up: {}", row.id(), row.handler(), attempts, error);
+        } else {
+            log.warn("Outbox row {} for {} failed (attempt {}), retrying in {}s: {}", row.id(), row.handler(),
+                    attempts, backoff.toSeconds(), error);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.neurocart.service;
+
+import com.neurocart.entity.Product;
+import com.neurocart.util.VarintCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Append-only price history, kept off the OLTP tables.
+ * <p>
+ * In memory, each product's series is a byte array of (time delta, zig-zag
+ * price delta) varint pairs, typically 3-5 bytes per change. Every change is
+ * also appended to a daily segment file as (product id, epoch second, price)
+ * varints; segments are replayed on startup. The segment buffer is flushed
+ * every second, which bounds what a crash can lose.
+ * <p>
+ * History is kept for {@code retention-days}. An hourly pass folds each
+ * series' older points into one baseline point at the start of the window,
+ * writes those baselines to {@code prices.baseline} and deletes the segments
+ * before it. Every 64th point of a series is indexed by time, so a range
+ * decodes from the nearest checkpoint rather than the first point.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceHistoryStore {
+
+    private static final DateTimeFormatter SEGMENT_DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String SEGMENT_PREFIX = "prices-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String BASELINE_FILE = "prices.baseline";
+    private static final int INDEX_STRIDE = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${neurocart.price-history.dir:data/price-history}")
+    private String directory;
+
+    @Value("${neurocart.price-history.retention-days:365}")
+    private int retentionDays;
+
+    private final ConcurrentHashMap<Long, PriceSeries> series = new ConcurrentHashMap<>();
+    private final AtomicLong recordedPoints = new AtomicLong();
+
+    private final Object segmentLock = new Object();
+    private OutputStream segment;
+    private LocalDate segmentDay;
+    // Points before this were folded into the baselines; guarded by this
+    private long baselineEpochSecond = Long.MIN_VALUE;
+
+    public record PricePoint(long epochSecond, long priceMinor) {
+    }
+
+    private static final class PriceSeries {
+        private byte[] data = new byte[2 * VarintCodec.MAX_VARLONG_BYTES];
+        private int length;
+        private int count;
+        private long firstEpochSecond;
+        private long lastEpochSecond;
+        private long lastPriceMinor;
+        // One checkpoint per INDEX_STRIDE points: offset, point time, and the time and price its deltas start from
+        private long[] index = new long[4];
+        private int checkpoints;
+
+        synchronized boolean append(long epochSecond, long priceMinor) {
+            if (count > 0 && priceMinor == lastPriceMinor)
+                return false;
+            long timestamp = Math.max(epochSecond, lastEpochSecond);
+            if (length + 2 * VarintCodec.MAX_VARLONG_BYTES > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 2 * VarintCodec.MAX_VARLONG_BYTES));
+            }
+            if (count % INDEX_STRIDE == 0) {
+                if (4 * checkpoints == index.length)
+                    index = Arrays.copyOf(index, index.length * 2);
+                index[4 * checkpoints] = length;
+                index[4 * checkpoints + 1] = timestamp;
+                index[4 * checkpoints + 2] = lastEpochSecond;
+                index[4 * checkpoints + 3] = lastPriceMinor;
+                checkpoints++;
+            }
+            if (count == 0)
+                firstEpochSecond = timestamp;
+            length = VarintCodec.writeVarLong(data, length, timestamp - lastEpochSecond);
+            length = VarintCodec.writeVarLong(data, length, VarintCodec.zigZag(priceMinor - lastPriceMinor));
+            lastEpochSecond = timestamp;
+            lastPriceMinor = priceMinor;
+            count++;
+            return true;
+        }
+
+        synchronized List<PricePoint> range(long fromEpochSecond, long toEpochSecond) {
+            List<PricePoint> points = new ArrayList<>();
+            if (count == 0)
+                return points;
+            // Last checkpoint strictly before the range, so points sharing its first second are not skipped
+            int lo = 0;
+            int hi = checkpoints - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (index[4 * mid + 1] < fromEpochSecond)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            int offset = (int) index[4 * lo];
+            ByteBuffer buffer = ByteBuffer.wrap(data, offset, length - offset);
+            long timestamp = index[4 * lo + 2];
+            long price = index[4 * lo + 3];
+            for (int i = lo * INDEX_STRIDE; i < count; i++) {
+                timestamp += VarintCodec.readVarLong(buffer);
+                price += VarintCodec.unZigZag(VarintCodec.readVarLong(buffer));
+                if (timestamp > toEpochSecond)
+                    break;
+                if (timestamp >= fromEpochSecond)
+                    points.add(new PricePoint(timestamp, price));
+            }
+            return points;
+        }
+
+        /**
+         * Replaces the points before {@code cutoff} with one point at
+         * {@code cutoff} holding the price then in effect. Returns that price,
+         * or null if the series starts at or after the cutoff.
+         */
+        synchronized Long compact(long cutoff) {
+            if (count == 0 || firstEpochSecond >= cutoff)
+                return null;
+            List<PricePoint> points = range(Long.MIN_VALUE, Long.MAX_VALUE);
+            long baseline = 0;
+            int kept = 0;
+            while (kept < points.size() && points.get(kept).epochSecond() < cutoff)
+                baseline = points.get(kept++).priceMinor();
+            data = new byte[2 * VarintCodec.MAX_VARLONG_BYTES * (points.size() - kept + 1)];
+            length = 0;
+            count = 0;
+            lastEpochSecond = 0;
+            lastPriceMinor = 0;
+            index = new long[4];
+            checkpoints = 0;
+            append(cutoff, baseline);
+            for (PricePoint point : points.subList(kept, points.size()))
+                append(point.epochSecond(), point.priceMinor());
+            return baseline;
+        }
+
+        synchronized int sizeInBytes() {
+            return length + 8 * index.length;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() throws IOException {
+        long start = System.currentTimeMillis();
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        long replayed = readBaseline(dir.resolve(BASELINE_FILE));
+        List<Path> segments = segments(dir);
+        for (Path file : segments) {
+            replayed += replay(file);
+        }
+
+        // Products without any history get their current price as the baseline point
+        long now = Instant.now().getEpochSecond();
+        long[] seeded = { 0 };
+        jdbcTemplate.query("SELECT id, current_price FROM products WHERE is_active = 1", rs -> {
+            long id = rs.getLong(1);
+            if (!series.containsKey(id)) {
+                record(id, PricingEngine.toMinor(rs.getBigDecimal(2)), now);
+                seeded[0]++;
+            }
+        });
+        log.info("Price history loaded: {} points replayed from {} segments, {} baselines seeded in {} ms",
+                replayed, segments.size(), seeded[0], System.currentTimeMillis() - start);
+        expire();
+    }
+
+    /**
+     * Moves the window start to the first day still retained: compacts the
+     * series, persists their baselines, then drops the older segments. A
+     * crash before the deletes leaves segments whose points replay skips.
+     */
+    @Scheduled(initialDelay = 3_600_000, fixedDelay = 3_600_000)
+    public synchronized void expire() {
+        LocalDate cutoffDay = LocalDate.ofEpochDay(Math.floorDiv(Instant.now().getEpochSecond(), 86_400L)
+                - retentionDays);
+        long cutoff = cutoffDay.toEpochDay() * 86_400L;
+        if (cutoff <= baselineEpochSecond)
+            return;
+        Map<Long, Long> baselines = new TreeMap<>();
+        series.forEach((id, s) -> {
+            Long price = s.compact(cutoff);
+            if (price != null)
+                baselines.put(id, price);
+        });
+        try {
+            Path dir = Paths.get(directory);
+            // Without any history before the window, replay has nothing to skip
+            if (baselines.isEmpty())
+                Files.deleteIfExists(dir.resolve(BASELINE_FILE));
+            else
+                writeBaseline(dir.resolve(BASELINE_FILE), cutoff, baselines);
+            baselineEpochSecond = cutoff;
+            synchronized (segmentLock) {
+                if (segmentDay != null && segmentDay.isBefore(cutoffDay))
+                    closeSegment();
+            }
+            int deleted = 0;
+            for (Path file : segments(dir)) {
+                if (dayOf(file).isBefore(cutoffDay)) {
+                    Files.delete(file);
+                    deleted++;
+                }
+            }
+            if (deleted > 0 || !baselines.isEmpty())
+                log.info("Price history before {}: {} series folded into baselines, {} segments deleted",
+                        cutoffDay, baselines.size(), deleted);
+        } catch (IOException e) {
+            log.warn("Could not expire price history before {}: {}", cutoffDay, e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onPricesChanged(PricesChangedEvent event) {
+        long now = Instant.now().getEpochSecond();
+        for (int i = 0; i < event.productIds().length; i++) {
+            record(event.productIds()[i], event.pricesMinor()[i], now);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        if (product.getCurrentPrice() != null) {
+            record(product.getId(), PricingEngine.toMinor(product.getCurrentPrice()),
+                    Instant.now().getEpochSecond());
+        }
+    }
+
+    /** Appends a point unless the price equals the last recorded one. */
+    public void record(long productId, long priceMinor, long epochSecond) {
+        if (!series.computeIfAbsent(productId, id -> new PriceSeries()).append(epochSecond, priceMinor))
+            return;
+        recordedPoints.incrementAndGet();
+        synchronized (segmentLock) {
+            try {
+                OutputStream out = segmentFor(LocalDate.ofEpochDay(Math.floorDiv(epochSecond, 86_400L)));
+                VarintCodec.writeVarLong(out, productId);
+                VarintCodec.writeVarLong(out, epochSecond);
+                VarintCodec.writeVarLong(out, VarintCodec.zigZag(priceMinor));
+            } catch (IOException e) {
+                log.warn("Could not append price change for product {}: {}", productId, e.getMessage());
+            }
+        }
+    }
+
+    public boolean contains(long productId) {
+        return series.containsKey(productId);
+    }
+
+    public List<PricePoint> range(long productId, long fromEpochSecond, long toEpochSecond) {
+        PriceSeries s = series.get(productId);
+        return s != null ? s.range(fromEpochSecond, toEpochSecond) : List.of();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", series.size());
+        stats.put("pointsRecorded", recordedPoints.get());
+        stats.put("memoryBytes", series.values().stream().mapToLong(PriceSeries::sizeInBytes).sum());
+        stats.put("segmentDay", segmentDay);
+        stats.put("retentionDays", retentionDays);
+        return stats;
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void flush() {
+        synchronized (segmentLock) {
+            if (segment == null)
+                return;
+            try {
+                segment.flush();
+            } catch (IOException e) {
+                log.warn("Could not flush price history segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (segmentLock) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Replays one segment. A crash can leave a partly written record at the
+     * end; it is cut off so that appends continue on a record boundary.
+     */
+    private long replay(Path file) throws IOException {
+        long points = 0;
+        long complete = 0;
+        boolean torn = false;
+        try (PositionedInputStream in = new PositionedInputStream(Files.newInputStream(file))) {
+            while (true) {
+                try {
+                    long productId = VarintCodec.readVarLong(in);
+                    long epochSecond = VarintCodec.readVarLong(in);
+                    long priceMinor = VarintCodec.unZigZag(VarintCodec.readVarLong(in));
+                    if (epochSecond >= baselineEpochSecond) {
+                        series.computeIfAbsent(productId, id -> new PriceSeries()).append(epochSecond, priceMinor);
+                        points++;
+                    }
+                    complete = in.position;
+                } catch (EOFException e) {
+                    torn = in.position > complete;
+                    break;
+                }
+            }
+        }
+        if (torn) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                log.warn("Truncating {} from {} to {} bytes to drop a partial record", file.getFileName(),
+                        channel.size(), complete);
+                channel.truncate(complete);
+            }
+        }
+        recordedPoints.addAndGet(points);
+        return points;
+    }
+
+    /** Baseline file: the window start, then (product id, zig-zag price) pairs. */
+    private long readBaseline(Path file) throws IOException {
+        if (!Files.exists(file))
+            return 0;
+        long points = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            long cutoff = VarintCodec.readVarLong(in);
+            while (true) {
+                long productId;
+                try {
+                    productId = VarintCodec.readVarLong(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                long priceMinor = VarintCodec.unZigZag(VarintCodec.readVarLong(in));
+                series.computeIfAbsent(productId, id -> new PriceSeries()).append(cutoff, priceMinor);
+                points++;
+            }
+            baselineEpochSecond = cutoff;
+        }
+        recordedPoints.addAndGet(points);
+        return points;
+    }
+
+    // Written aside and moved into place, so a crash leaves the old baselines or the new ones
+    private static void writeBaseline(Path file, long cutoff, Map<Long, Long> baselines) throws IOException {
+        Path temp = file.resolveSibling(BASELINE_FILE + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            VarintCodec.writeVarLong(out, cutoff);
+            for (Map.Entry<Long, Long> baseline : baselines.entrySet()) {
+                VarintCodec.writeVarLong(out, baseline.getKey());
+                VarintCodec.writeVarLong(out, VarintCodec.zigZag(baseline.getValue()));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static LocalDate dayOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return LocalDate.parse(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()),
+                SEGMENT_DAY);
+    }
+
+    private OutputStream segmentFor(LocalDate day) throws IOException {
+        if (segment == null || !day.equals(segmentDay)) {
+            closeSegment();
+            Path file = Paths.get(directory, SEGMENT_PREFIX + SEGMENT_DAY.format(day) + SEGMENT_SUFFIX);
+            Files.createDirectories(file.getParent());
+            segment = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 1 << 16);
+            segmentDay = day;
+        }
+        return segment;
+    }
+
+    private void closeSegment() {
+        if (segment == null)
+            return;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Could not close price history segment: {}", e.getMessage());
+        }
+        segment = null;
+    }
+
+    private static final class PositionedInputStream extends BufferedInputStream {
+        long position;
+
+        PositionedInputStream(InputStream in) {
+            super(in, 1 << 16);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                position++;
+            return b;
+        }
+    }
+}
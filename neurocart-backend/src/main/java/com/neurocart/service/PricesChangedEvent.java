@@ -0,0 +1,8 @@
+package com.neurocart.service;
+
+/**
+ * Published by the pricing engine after a batch of current prices was written.
+ * Prices are in minor units (paise) and aligned by index with the product ids.
+ */
+public record PricesChangedEvent(long[] productIds, long[] pricesMinor) {
+}
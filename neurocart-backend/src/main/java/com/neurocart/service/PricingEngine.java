@@ -0,0 +1,205 @@
+package com.neurocart.service;
+
+import com.neurocart.util.LatencyHistogram;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Dynamic pricing on long minor units (paise) with fixed-point factors.
+ * <p>
+ * Rules: offer discount, stock-scarcity surge (below 10 units, up to +15%),
+ * demand surge (above 100 views, up to +10%), floored at 50% of base price
+ * and capped at the largest price the column holds.
+ * Each step rounds half-up to the paisa. The whole catalog is repriced on a
+ * schedule in id-ordered chunks; only changed prices are written back, and
+ * only to rows whose price inputs and current price are still the ones the
+ * chunk read. A row edited in between is left for the next run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PricingEngine {
+
+    private static final long PPM = 1_000_000L;
+    // products.current_price is DECIMAL(10,2); a surge past it would fail the whole write batch
+    private static final long MAX_PRICE_MINOR = 9_999_999_999L;
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private static final String CHUNK_SQL = "SELECT id, base_price, discount_percentage, stock_quantity, "
+            + "demand_count, current_price FROM products WHERE is_active = 1 AND id > ? ORDER BY id LIMIT ?";
+    // Touches updated_at so incremental exports (updatedSince) pick up repriced products
+    private static final String UPDATE_SQL = "UPDATE products SET current_price = ?, updated_at = ? WHERE id = ? "
+            + "AND base_price = ? AND COALESCE(discount_percentage, 0) = ? AND current_price = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+    private volatile Map<String, Object> lastRun = Map.of();
+    // Writes dropped because the row changed after its chunk was read
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param discountBasisPoints discount percentage scaled by 100 (12.50% = 1250)
+     */
+    public static long priceMinor(long baseMinor, long discountBasisPoints, int stock, int demand) {
+        long price = baseMinor;
+        if (discountBasisPoints > 0) {
+            price -= mulDivHalfUp(price, discountBasisPoints, 10_000L);
+        }
+        if (stock > 0 && stock < 10) {
+            // 1 + 0.15 * (1 - stock / 10)
+            price = mulDivHalfUp(price, PPM + 15_000L * (10 - stock), PPM);
+        }
+        if (demand > 100) {
+            // min(1.10, 1 + (demand - 100) / 2000)
+            long factor = Math.min(1_100_000L, PPM + (demand - 100L) * 500L);
+            price = mulDivHalfUp(price, factor, PPM);
+        }
+        return Math.min(Math.max(price, (baseMinor + 1) / 2), MAX_PRICE_MINOR);
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, java.math.RoundingMode.HALF_UP).longValue()
+                : 0L;
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+
+    @Scheduled(fixedDelayString = "${neurocart.pricing.interval-ms:60000}",
+            initialDelayString = "${neurocart.pricing.initial-delay-ms:30000}")
+    public void repriceCatalog() {
+        if (!runLock.tryLock())
+            return;
+        long start = System.nanoTime();
+        long scanned = 0;
+        long changed = 0;
+        try {
+            long lastId = 0;
+            while (true) {
+                Chunk chunk = loadChunk(lastId);
+                if (chunk.size == 0)
+                    break;
+                scanned += chunk.size;
+                changed += writeChanged(chunk, evaluate(chunk));
+                lastId = chunk.ids[chunk.size - 1];
+                if (chunk.size < CHUNK_SIZE)
+                    break;
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            runLatency.record(elapsed);
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("finishedAt", LocalDateTime.now());
+            run.put("scanned", scanned);
+            run.put("changed", changed);
+            run.put("durationMs", elapsed / 1_000_000);
+            lastRun = run;
+            runLock.unlock();
+        }
+        if (changed > 0)
+            log.info("Repriced catalog: {} of {} prices changed", changed, scanned);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lastRun", lastRun);
+        stats.put("skippedStaleWrites", skipped.sum());
+        stats.put("runLatency", runLatency.snapshot());
+        return stats;
+    }
+
+    private static final class Chunk {
+        final long[] ids = new long[CHUNK_SIZE];
+        final long[] baseMinor = new long[CHUNK_SIZE];
+        final long[] discountBasisPoints = new long[CHUNK_SIZE];
+        final int[] stock = new int[CHUNK_SIZE];
+        final int[] demand = new int[CHUNK_SIZE];
+        final long[] currentMinor = new long[CHUNK_SIZE];
+        int size;
+    }
+
+    private Chunk loadChunk(long afterId) {
+        Chunk chunk = new Chunk();
+        jdbcTemplate.query(CHUNK_SQL, rs -> {
+            int i = chunk.size++;
+            chunk.ids[i] = rs.getLong(1);
+            chunk.baseMinor[i] = toMinor(rs.getBigDecimal(2));
+            chunk.discountBasisPoints[i] = toMinor(rs.getBigDecimal(3));
+            chunk.stock[i] = rs.getInt(4);
+            chunk.demand[i] = rs.getInt(5);
+            chunk.currentMinor[i] = toMinor(rs.getBigDecimal(6));
+        }, afterId, CHUNK_SIZE);
+        return chunk;
+    }
+
+    private static long[] evaluate(Chunk chunk) {
+        long[] prices = new long[chunk.size];
+        IntStream.range(0, chunk.size).parallel().forEach(i -> prices[i] = priceMinor(
+                chunk.baseMinor[i], chunk.discountBasisPoints[i], chunk.stock[i], chunk.demand[i]));
+        return prices;
+    }
+
+    private int writeChanged(Chunk chunk, long[] prices) {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < chunk.size; i++) {
+            if (prices[i] != chunk.currentMinor[i])
+                rows.add(i);
+        }
+        if (rows.isEmpty())
+            return 0;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, rows, WRITE_BATCH_SIZE, (ps, i) -> {
+            ps.setBigDecimal(1, fromMinor(prices[i]));
+            ps.setTimestamp(2, now);
+            ps.setLong(3, chunk.ids[i]);
+            ps.setBigDecimal(4, fromMinor(chunk.baseMinor[i]));
+            ps.setBigDecimal(5, fromMinor(chunk.discountBasisPoints[i]));
+            ps.setBigDecimal(6, fromMinor(chunk.currentMinor[i]));
+        });
+
+        // Only rows the guard let through are announced
+        long[] changedIds = new long[rows.size()];
+        long[] changedPrices = new long[rows.size()];
+        int changed = 0;
+        int n = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                int i = rows.get(n++);
+                if (count == 1) {
+                    changedIds[changed] = chunk.ids[i];
+                    changedPrices[changed++] = prices[i];
+                }
+            }
+        }
+        skipped.add(rows.size() - changed);
+        if (changed > 0)
+            eventPublisher.publishEvent(new PricesChangedEvent(Arrays.copyOf(changedIds, changed),
+                    Arrays.copyOf(changedPrices, changed)));
+        return changed;
+    }
+
+    private static long mulDivHalfUp(long value, long numerator, long denominator) {
+        return (value * numerator + denominator / 2) / denominator;
+    }
+}
@@ -0,0 +1,10 @@
+package com.neurocart.service;
+
+import com.neurocart.entity.Product;
+
+/**
+ * Published whenever a product row is written. In-memory catalog structures
+ * listen for it after commit; an inactive product means "remove".
+ */
+public record ProductChangedEvent(Product product) {
+}
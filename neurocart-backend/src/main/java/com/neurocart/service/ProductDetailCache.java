@@ -0,0 +1,154 @@
+package com.neurocart.service;
+
+import com.neurocart.config.TieredCacheManager;
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.util.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of product detail responses, validated by version.
+ * <p>
+ * Every product has an in-memory version that is bumped whenever a change
+ * event arrives for it (edits, deletes, reviews, stock deductions,
+ * repricing). Entries remember the version they were built from and are
+ * discarded on mismatch, so a load racing with a write can never be served
+ * after the write's invalidation. The cache TTL
+ * ({@code neurocart.cache.caches[productDetails].ttl}) bounds staleness for
+ * anything that bypasses the events.
+ * <p>
+ * Versions only exist on this node, so entries must never reach the shared
+ * tier, where another node would validate them against its own counters;
+ * the cache is configured with {@code shared=false} and startup fails
+ * otherwise.
+ */
+@Component
+@Slf4j
+public class ProductDetailCache {
+
+    public static final String CACHE_NAME = "productDetails";
+
+    private final Cache cache;
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private final SingleFlight<LoadKey, Entry> loads;
+
+    public ProductDetailCache(TieredCacheManager cacheManager,
+            @Value("${neurocart.cache.coalescing-timeout:5s}") Duration coalescingTimeout) {
+        if (cacheManager.isShared(CACHE_NAME))
+            throw new IllegalStateException("Cache '" + CACHE_NAME + "' must not use the shared tier; set "
+                    + "neurocart.cache.caches[" + CACHE_NAME + "].shared=false");
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.loads = new SingleFlight<>(coalescingTimeout);
+    }
+
+    private static final class Entry {
+        final long version;
+        final ProductDTO.ProductResponse response;
+        final LocalDateTime updatedAt;
+        // Demand is flushed in the background without touching updatedAt; kept current from events
+        volatile int demandCount;
+
+        Entry(long version, ProductDTO.ProductResponse response, LocalDateTime updatedAt) {
+            this.version = version;
+            this.response = response;
+            this.updatedAt = updatedAt;
+            this.demandCount = response.getDemandCount() != null ? response.getDemandCount() : 0;
+        }
+    }
+
+    private record LoadKey(long id, long version) {
+    }
+
+    public record Loaded(ProductDTO.ProductResponse response, LocalDateTime updatedAt) {
+    }
+
+    /**
+     * Returns a copy of the cached response (callers may adjust it), loading
+     * on a miss. The loader's exceptions propagate and nothing is cached.
+     */
+    public ProductDTO.ProductResponse get(Long id, Supplier<Loaded> loader) {
+        long version = versions.getOrDefault(id, 0L);
+        Entry entry = cache.get(id, Entry.class);
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            return copyOf(entry);
+        }
+        misses.increment();
+        // Concurrent misses for the same product share one database load
+        entry = loads.execute(new LoadKey(id, version), () -> {
+            Loaded loaded = loader.get();
+            Entry built = new Entry(version, loaded.response(), loaded.updatedAt());
+            cache.put(id, built);
+            return built;
+        });
+        return copyOf(entry);
+    }
+
+    public void invalidate(long id) {
+        versions.merge(id, 1L, Long::sum);
+        cache.evict(id);
+        invalidations.increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.product().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        for (long id : event.productIds()) {
+            invalidate(id);
+        }
+    }
+
+    // Flushes run one at a time, so the entries have a single writer
+    @EventListener
+    public void onDemandFlushed(DemandFlushedEvent event) {
+        event.deltas().forEach((id, delta) -> {
+            Entry entry = cache.get(id, Entry.class);
+            if (entry != null)
+                entry.demandCount += delta;
+        });
+    }
+
+    @EventListener
+    public void onPricesChanged(PricesChangedEvent event) {
+        for (long id : event.productIds()) {
+            invalidate(id);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("invalidations", invalidations.sum());
+        stats.put("trackedVersions", versions.size());
+        stats.put("coalescing", loads.stats());
+        return stats;
+    }
+
+    private static ProductDTO.ProductResponse copyOf(Entry entry) {
+        return entry.response.toBuilder().demandCount(entry.demandCount).build();
+    }
+}
@@ -0,0 +1,213 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neurocart.entity.User;
+import com.neurocart.entity.Vendor;
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.repository.VendorRepository;
+import com.neurocart.util.CsvCodec;
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog export streamed straight from a forward-only JDBC cursor.
+ * <p>
+ * MySQL Connector/J only streams rows when the fetch size is
+ * {@link Integer#MIN_VALUE}; otherwise it buffers the full result set.
+ * Each row is written as soon as it is read, so memory stays flat whatever
+ * the catalog size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExportService {
+
+    private static final String[] COLUMNS = { "id", "sku", "name", "description", "basePrice", "currentPrice",
+            "discountPercentage", "stockQuantity", "categoryId", "categoryName", "vendorId", "active", "featured",
+            "averageRating", "totalReviews", "tags", "imageUrl", "updatedAt" };
+
+    private static final String SELECT_SQL = "SELECT p.id, p.sku, p.name, p.description, p.base_price, "
+            + "p.current_price, p.discount_percentage, p.stock_quantity, p.category_id, c.name, p.vendor_id, "
+            + "p.is_active, p.is_featured, p.average_rating, p.total_reviews, p.tags, p.image_url, p.updated_at "
+            + "FROM products p LEFT JOIN categories c ON c.id = p.category_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final VendorRepository vendorRepository;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"), CSV("text/csv", "csv");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+    }
+
+    @Builder
+    public record Filter(Long vendorId, Long categoryId, LocalDateTime updatedSince, boolean includeInactive) {
+    }
+
+    public Long vendorIdOf(User user) {
+        return vendorRepository.findByUserId(user.getId())
+                .map(Vendor::getId)
+                .orElseThrow(() -> new BadRequestException("User is not a vendor"));
+    }
+
+    /** Wraps an export as a streaming response; rows are written on the async request thread. */
+    public ResponseEntity<StreamingResponseBody> exportResponse(Format format, Filter filter) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.mediaType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + format.extension + "\"")
+                .body(out -> export(out, format, filter));
+    }
+
+    public void export(OutputStream out, Format format, Filter filter) throws IOException {
+        long start = System.currentTimeMillis();
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_SQL).append(" WHERE 1 = 1");
+        if (!filter.includeInactive()) {
+            sql.append(" AND p.is_active = 1");
+        }
+        if (filter.vendorId() != null) {
+            sql.append(" AND p.vendor_id = ?");
+            args.add(filter.vendorId());
+        }
+        if (filter.categoryId() != null) {
+            sql.append(" AND p.category_id = ?");
+            args.add(filter.categoryId());
+        }
+        if (filter.updatedSince() != null) {
+            // Incremental feeds resume from the last updatedAt they saw
+            sql.append(" AND p.updated_at >= ? ORDER BY p.updated_at, p.id");
+            args.add(Timestamp.valueOf(filter.updatedSince()));
+        } else {
+            sql.append(" ORDER BY p.id");
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new JsonRowWriter(writer);
+        long[] rows = { 0 };
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, rs -> {
+            try {
+                rowWriter.write(rs);
+                rows[0]++;
+            } catch (IOException e) {
+                // Client went away; abort the cursor instead of draining it
+                throw new UncheckedIOException(e);
+            }
+        });
+        rowWriter.close();
+        log.info("Exported {} products as {} in {} ms", rows[0], format, System.currentTimeMillis() - start);
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void close() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1)
+                    writer.write(',');
+                Object value = rs.getObject(i);
+                writer.write(CsvCodec.escape(value != null ? format(value) : null));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class JsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+
+        JsonRowWriter(Writer writer) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                Object value = rs.getObject(i);
+                json.writeFieldName(COLUMNS[i - 1]);
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    json.writeNumber(decimal);
+                } else if (value instanceof Long || value instanceof Integer) {
+                    json.writeNumber(((Number) value).longValue());
+                } else if (value instanceof Number number) {
+                    json.writeNumber(number.doubleValue());
+                } else if (value instanceof Boolean flag) {
+                    json.writeBoolean(flag);
+                } else {
+                    json.writeString(format(value));
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Timestamp ts)
+            return ts.toLocalDateTime().toString();
+        if (value instanceof LocalDateTime time)
+            return time.toString();
+        if (value instanceof BigDecimal decimal)
+            return decimal.toPlainString();
+        return value.toString();
+    }
+}
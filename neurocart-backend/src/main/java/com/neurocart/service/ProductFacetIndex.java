@@ -0,0 +1,397 @@
+package com.neurocart.service;
+
+import com.neurocart.entity.Product;
+import com.neurocart.repository.ProductRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-value bitmaps over active product ids for faceted browsing. Filtering,
+ * per-facet counts and ordering are answered from memory; only the final page
+ * of ids is loaded from the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String VENDOR = "vendor";
+    public static final String PRICE = "price";
+    public static final String RATING = "rating";
+    public static final String IN_STOCK = "inStock";
+
+    public static final Set<String> SORT_FIELDS = Set.of("createdAt", "currentPrice", "averageRating", "demandCount");
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap active = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> categories = new HashMap<>();
+    private final Map<Long, RoaringBitmap> vendors = new HashMap<>();
+    private final Map<PriceBand, RoaringBitmap> priceBands = new EnumMap<>(PriceBand.class);
+    private final Map<Integer, RoaringBitmap> ratings = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    @Getter
+    public enum PriceBand {
+        UNDER_500("Under ₹500", 0, 500),
+        FROM_500_TO_1000("₹500 - ₹1,000", 500, 1_000),
+        FROM_1000_TO_5000("₹1,000 - ₹5,000", 1_000, 5_000),
+        FROM_5000_TO_10000("₹5,000 - ₹10,000", 5_000, 10_000),
+        FROM_10000_TO_50000("₹10,000 - ₹50,000", 10_000, 50_000),
+        ABOVE_50000("Above ₹50,000", 50_000, Long.MAX_VALUE / 100);
+
+        private final String label;
+        private final long minMinor;
+        private final long maxMinor;
+
+        PriceBand(String label, long min, long max) {
+            this.label = label;
+            this.minMinor = min * 100;
+            this.maxMinor = max * 100;
+        }
+
+        public static PriceBand of(long priceMinor) {
+            for (PriceBand band : values()) {
+                if (priceMinor < band.maxMinor)
+                    return band;
+            }
+            return ABOVE_50000;
+        }
+    }
+
+    /** Values are OR-ed within a facet; facets are AND-ed unless {@code matchAny} is set. */
+    public record Query(Set<Long> categoryIds, Set<Long> vendorIds, Set<PriceBand> priceBands,
+            Set<Integer> ratingBuckets, Boolean inStock, boolean matchAny) {
+    }
+
+    public record Result(RoaringBitmap hits, Map<String, Map<String, Integer>> counts) {
+    }
+
+    private record Document(Long categoryId, Long vendorId, PriceBand priceBand, int ratingBucket,
+            boolean inStock, long priceMinor, double rating, int demand) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId,
+                    PageRequest.of(0, BUILD_BATCH_SIZE));
+            for (Product p : batch) {
+                index(p);
+                lastId = p.getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        log.info("Facet index built: {} products in {} ms", size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        if (product.isActive()) {
+            index(product);
+        } else {
+            remove(product.getId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < event.productIds().length; i++) {
+                int docId = Math.toIntExact(event.productIds()[i]);
+                Document doc = documents.get(docId);
+                boolean available = event.stock()[i] > 0;
+                if (doc == null || doc.inStock() == available)
+                    continue;
+                if (available)
+                    inStock.add(docId);
+                else
+                    inStock.remove(docId);
+                documents.put(docId, new Document(doc.categoryId(), doc.vendorId(), doc.priceBand(),
+                        doc.ratingBucket(), available, doc.priceMinor(), doc.rating(), doc.demand()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onPricesChanged(PricesChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < event.productIds().length; i++) {
+                int docId = Math.toIntExact(event.productIds()[i]);
+                Document doc = documents.get(docId);
+                if (doc == null)
+                    continue;
+                long priceMinor = event.pricesMinor()[i];
+                PriceBand band = PriceBand.of(priceMinor);
+                if (band != doc.priceBand()) {
+                    removeFrom(priceBands, doc.priceBand(), docId);
+                    priceBands.computeIfAbsent(band, k -> new RoaringBitmap()).add(docId);
+                }
+                documents.put(docId, new Document(doc.categoryId(), doc.vendorId(), band, doc.ratingBucket(),
+                        doc.inStock(), priceMinor, doc.rating(), doc.demand()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Demand sort keys move by the flushed increments; nothing else in a document depends on demand. */
+    @EventListener
+    public void onDemandFlushed(DemandFlushedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.deltas().forEach((id, delta) -> {
+                int docId = Math.toIntExact(id);
+                Document doc = documents.get(docId);
+                if (doc != null)
+                    documents.put(docId, new Document(doc.categoryId(), doc.vendorId(), doc.priceBand(),
+                            doc.ratingBucket(), doc.inStock(), doc.priceMinor(), doc.rating(),
+                            (int) (doc.demand() + delta)));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product p) {
+        int docId = Math.toIntExact(p.getId());
+        long priceMinor = PricingEngine.toMinor(p.getCurrentPrice());
+        double rating = p.getAverageRating() != null ? p.getAverageRating() : 0.0;
+        Document doc = new Document(
+                p.getCategory() != null ? p.getCategory().getId() : null,
+                p.getVendor() != null ? p.getVendor().getId() : null,
+                PriceBand.of(priceMinor),
+                Math.min(4, (int) Math.floor(rating)),
+                p.getStockQuantity() != null && p.getStockQuantity() > 0,
+                priceMinor,
+                rating,
+                p.getDemandCount() != null ? p.getDemandCount() : 0);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(docId);
+            active.add(docId);
+            if (doc.inStock())
+                inStock.add(docId);
+            if (doc.categoryId() != null)
+                categories.computeIfAbsent(doc.categoryId(), k -> new RoaringBitmap()).add(docId);
+            if (doc.vendorId() != null)
+                vendors.computeIfAbsent(doc.vendorId(), k -> new RoaringBitmap()).add(docId);
+            priceBands.computeIfAbsent(doc.priceBand(), k -> new RoaringBitmap()).add(docId);
+            ratings.computeIfAbsent(doc.ratingBucket(), k -> new RoaringBitmap()).add(docId);
+            documents.put(docId, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(Math.toIntExact(productId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public RoaringBitmap category(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = categories.get(categoryId);
+            return bitmap != null ? bitmap.clone() : new RoaringBitmap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluates the query, optionally restricted to a candidate set (e.g. search
+     * hits). Counts use disjunctive faceting: each facet is counted against the
+     * selections of all other facets, so selecting a value never hides its siblings.
+     */
+    public Result query(Query query, RoaringBitmap restrictTo) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = restrictTo != null ? RoaringBitmap.and(active, restrictTo) : active.clone();
+
+            Map<String, RoaringBitmap> selections = new LinkedHashMap<>();
+            putSelection(selections, CATEGORY, categories, query.categoryIds());
+            putSelection(selections, VENDOR, vendors, query.vendorIds());
+            putSelection(selections, PRICE, priceBands, query.priceBands());
+            putSelection(selections, RATING, ratings, query.ratingBuckets());
+            if (query.inStock() != null) {
+                selections.put(IN_STOCK, query.inStock() ? inStock.clone() : RoaringBitmap.andNot(active, inStock));
+            }
+
+            RoaringBitmap hits = restrict(base, selections, null, query.matchAny());
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            counts.put(CATEGORY, countValues(restrict(base, selections, CATEGORY, query.matchAny()), categories));
+            counts.put(VENDOR, countValues(restrict(base, selections, VENDOR, query.matchAny()), vendors));
+            counts.put(PRICE, countValues(restrict(base, selections, PRICE, query.matchAny()), priceBands));
+            counts.put(RATING, countValues(restrict(base, selections, RATING, query.matchAny()), ratings));
+
+            RoaringBitmap stockScope = restrict(base, selections, IN_STOCK, query.matchAny());
+            int inStockCount = RoaringBitmap.andCardinality(stockScope, inStock);
+            Map<String, Integer> stockCounts = new LinkedHashMap<>();
+            stockCounts.put("true", inStockCount);
+            stockCounts.put("false", stockScope.getCardinality() - inStockCount);
+            counts.put(IN_STOCK, stockCounts);
+
+            return new Result(hits, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Orders the hits by the given field (descending, ties broken by newest id)
+     * and returns one page of ids. Only the top {@code offset + size} entries are
+     * kept while scanning.
+     */
+    public List<Long> page(RoaringBitmap hits, String sortBy, long offset, int size) {
+        List<Long> ids = new ArrayList<>(size);
+        int total = hits.getCardinality();
+        if (offset >= total || size <= 0)
+            return ids;
+
+        if (sortBy == null || "createdAt".equals(sortBy)) {
+            // Ids are IDENTITY-assigned, so descending id order is newest-first
+            for (long rank = total - 1L - offset; rank >= 0 && ids.size() < size; rank--) {
+                ids.add((long) hits.select((int) rank));
+            }
+            return ids;
+        }
+
+        int limit = (int) Math.min(total, offset + size);
+        Comparator<long[]> ascending = Comparator.<long[]>comparingLong(e -> e[1]).thenComparingLong(e -> e[0]);
+        PriorityQueue<long[]> top = new PriorityQueue<>(limit + 1, ascending);
+        lock.readLock().lock();
+        try {
+            IntIterator it = hits.getIntIterator();
+            while (it.hasNext()) {
+                int docId = it.next();
+                Document doc = documents.get(docId);
+                if (doc == null)
+                    continue;
+                top.add(new long[] { docId, sortKey(doc, sortBy) });
+                if (top.size() > limit)
+                    top.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<long[]> ordered = new ArrayList<>(top);
+        ordered.sort(ascending.reversed());
+        for (int i = (int) offset; i < ordered.size() && ids.size() < size; i++) {
+            ids.add(ordered.get(i)[0]);
+        }
+        return ids;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return active.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long sortKey(Document doc, String sortBy) {
+        return switch (sortBy) {
+            case "currentPrice" -> doc.priceMinor();
+            case "averageRating" -> Math.round(doc.rating() * 100);
+            case "demandCount" -> doc.demand();
+            default -> throw new IllegalArgumentException("Unsupported sort field: " + sortBy);
+        };
+    }
+
+    private static <K> void putSelection(Map<String, RoaringBitmap> selections, String facet,
+            Map<K, RoaringBitmap> values, Set<K> selected) {
+        if (selected == null || selected.isEmpty())
+            return;
+        RoaringBitmap union = new RoaringBitmap();
+        for (K value : selected) {
+            RoaringBitmap bitmap = values.get(value);
+            if (bitmap != null)
+                union.or(bitmap);
+        }
+        selections.put(facet, union);
+    }
+
+    private static RoaringBitmap restrict(RoaringBitmap base, Map<String, RoaringBitmap> selections,
+            String excludedFacet, boolean matchAny) {
+        RoaringBitmap combined = null;
+        for (Map.Entry<String, RoaringBitmap> selection : selections.entrySet()) {
+            if (selection.getKey().equals(excludedFacet))
+                continue;
+            if (combined == null) {
+                combined = selection.getValue().clone();
+            } else if (matchAny) {
+                combined.or(selection.getValue());
+            } else {
+                combined.and(selection.getValue());
+            }
+        }
+        return combined == null ? base.clone() : RoaringBitmap.and(base, combined);
+    }
+
+    private static <K> Map<String, Integer> countValues(RoaringBitmap scope, Map<K, RoaringBitmap> values) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<K, RoaringBitmap> value : values.entrySet()) {
+            int count = RoaringBitmap.andCardinality(scope, value.getValue());
+            if (count > 0)
+                counts.put(String.valueOf(value.getKey()), count);
+        }
+        return counts;
+    }
+
+    private void removeLocked(int docId) {
+        Document doc = documents.remove(docId);
+        if (doc == null)
+            return;
+        active.remove(docId);
+        inStock.remove(docId);
+        removeFrom(categories, doc.categoryId(), docId);
+        removeFrom(vendors, doc.vendorId(), docId);
+        removeFrom(priceBands, doc.priceBand(), docId);
+        removeFrom(ratings, doc.ratingBucket(), docId);
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> values, K key, int docId) {
+        if (key == null)
+            return;
+        RoaringBitmap bitmap = values.get(key);
+        if (bitmap == null)
+            return;
+        bitmap.remove(docId);
+        if (bitmap.isEmpty())
+            values.remove(key);
+    }
+}
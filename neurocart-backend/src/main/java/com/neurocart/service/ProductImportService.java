@@ -0,0 +1,376 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.entity.Category;
+import com.neurocart.entity.User;
+import com.neurocart.entity.Vendor;
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.repository.CategoryRepository;
+import com.neurocart.repository.ProductRepository;
+import com.neurocart.repository.VendorRepository;
+import com.neurocart.util.CsvCodec;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Streaming bulk import of vendor products from CSV or NDJSON.
+ * <p>
+ * Rows are read and validated one at a time and inserted in JDBC batches of
+ * {@link #BATCH_SIZE}, each batch in its own transaction. A failing batch is
+ * retried row by row so the offending rows can be reported; the rest of the
+ * file is still imported. Each batch is published to the indexes as soon as
+ * it commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+
+    public static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_PRODUCT_SQL = "INSERT INTO products (name, description, base_price, "
+            + "current_price, stock_quantity, demand_count, image_url, sku, weight_kg, is_active, is_featured, "
+            + "average_rating, total_reviews, category_id, vendor_id, discount_percentage, tags, created_at, "
+            + "updated_at) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?, 1, ?, 0, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IMAGE_SQL = "INSERT INTO product_images (product_id, image_url) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final VendorRepository vendorRepository;
+    private final ProductRepository productRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private record ImportRow(long line, ProductDTO.ProductRequest request, long priceMinor) {
+    }
+
+    private static final class Categories {
+        final Set<Long> ids = new HashSet<>();
+        final Map<String, Long> idsByName = new HashMap<>();
+
+        Categories(List<Category> categories) {
+            for (Category category : categories) {
+                ids.add(category.getId());
+                idsByName.put(category.getName().toLowerCase(Locale.ROOT), category.getId());
+            }
+        }
+    }
+
+    private static final class Report {
+        final long start = System.currentTimeMillis();
+        long rows;
+        long imported;
+        long failed;
+        final List<ProductDTO.ImportError> errors = new ArrayList<>();
+
+        void error(long line, String sku, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ProductDTO.ImportError.builder().line(line).sku(sku).message(message).build());
+            }
+        }
+    }
+
+    @CacheEvict(value = { "products", "featuredProducts", "similarProducts" }, allEntries = true)
+    public ProductDTO.ImportReport importProducts(InputStream input, Format format, User currentUser)
+            throws IOException {
+        Vendor vendor = vendorRepository.findByUserId(currentUser.getId())
+                .orElseThrow(() -> new BadRequestException("User is not a vendor"));
+        Categories categories = new Categories(categoryRepository.findAll());
+
+        Report report = new Report();
+        Set<String> seenSkus = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+
+        List<String> header = null;
+        long line = 0;
+        while (true) {
+            Map<String, JsonNode> fields;
+            line++;
+            try {
+                if (format == Format.CSV) {
+                    List<String> record = CsvCodec.readRecord(reader);
+                    if (record == null)
+                        break;
+                    if (header == null) {
+                        header = record.stream().map(h -> h.trim().toLowerCase(Locale.ROOT)).toList();
+                        continue;
+                    }
+                    fields = csvFields(header, record);
+                } else {
+                    String json = reader.readLine();
+                    if (json == null)
+                        break;
+                    if (json.isBlank())
+                        continue;
+                    fields = jsonFields(objectMapper.readTree(json));
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                report.rows++;
+                report.error(line, null, "Malformed row: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                continue;
+            }
+
+            report.rows++;
+            ImportRow row = toRow(line, fields, categories, seenSkus, report);
+            if (row != null) {
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    insertBatch(batch, vendor, report);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty())
+            insertBatch(batch, vendor, report);
+
+        long durationMs = System.currentTimeMillis() - report.start;
+        log.info("Imported {} of {} products for vendor {} in {} ms", report.imported, report.rows, vendor.getId(),
+                durationMs);
+        return ProductDTO.ImportReport.builder()
+                .totalRows(report.rows)
+                .imported(report.imported)
+                .failed(report.failed)
+                .durationMs(durationMs)
+                .errors(report.errors)
+                .build();
+    }
+
+    // ── Parsing ──
+
+    private static Map<String, JsonNode> csvFields(List<String> header, List<String> record) {
+        Map<String, JsonNode> fields = new HashMap<>();
+        for (int i = 0; i < header.size() && i < record.size(); i++) {
+            String value = record.get(i).trim();
+            if (!value.isEmpty()) {
+                fields.put(header.get(i), TextNode.valueOf(value));
+            }
+        }
+        return fields;
+    }
+
+    private static Map<String, JsonNode> jsonFields(JsonNode node) {
+        if (!node.isObject())
+            throw new IllegalArgumentException("expected a JSON object");
+        Map<String, JsonNode> fields = new HashMap<>();
+        node.fields().forEachRemaining(e -> {
+            if (!e.getValue().isNull())
+                fields.put(e.getKey().toLowerCase(Locale.ROOT), e.getValue());
+        });
+        return fields;
+    }
+
+    private ImportRow toRow(long line, Map<String, JsonNode> fields, Categories categories, Set<String> seenSkus,
+            Report report) {
+        String sku = text(fields, "sku");
+        ProductDTO.ProductRequest request;
+        try {
+            request = ProductDTO.ProductRequest.builder()
+                    .name(text(fields, "name"))
+                    .description(text(fields, "description"))
+                    .basePrice(decimal(fields, "baseprice"))
+                    .stockQuantity(integer(fields, "stockquantity"))
+                    .imageUrl(text(fields, "imageurl"))
+                    .additionalImages(images(fields.get("additionalimages")))
+                    .sku(sku)
+                    .weightKg(decimal(fields, "weightkg"))
+                    .featured(Boolean.parseBoolean(text(fields, "featured")))
+                    .discountPercentage(decimal(fields, "discountpercentage"))
+                    .tags(text(fields, "tags"))
+                    .categoryId(categoryId(fields, categories))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            report.error(line, sku, e.getMessage());
+            return null;
+        }
+
+        Set<ConstraintViolation<ProductDTO.ProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ProductDTO.ProductRequest> v = violations.iterator().next();
+            report.error(line, sku, v.getPropertyPath() + ": " + v.getMessage());
+            return null;
+        }
+        if (sku != null && !seenSkus.add(sku)) {
+            report.error(line, sku, "Duplicate SKU in file");
+            return null;
+        }
+
+        BigDecimal discount = request.getDiscountPercentage() != null ? request.getDiscountPercentage()
+                : BigDecimal.ZERO;
+        long priceMinor = PricingEngine.priceMinor(PricingEngine.toMinor(request.getBasePrice()),
+                PricingEngine.toMinor(discount), request.getStockQuantity(), 0);
+        return new ImportRow(line, request, priceMinor);
+    }
+
+    private static Long categoryId(Map<String, JsonNode> fields, Categories categories) {
+        String id = text(fields, "categoryid");
+        if (id != null) {
+            Long categoryId = parse(id, "categoryId", Long::valueOf);
+            if (!categories.ids.contains(categoryId))
+                throw new IllegalArgumentException("Unknown category id " + categoryId);
+            return categoryId;
+        }
+        String name = text(fields, "category");
+        if (name == null)
+            return null;
+        Long categoryId = categories.idsByName.get(name.toLowerCase(Locale.ROOT));
+        if (categoryId == null)
+            throw new IllegalArgumentException("Unknown category '" + name + "'");
+        return categoryId;
+    }
+
+    private static String text(Map<String, JsonNode> fields, String key) {
+        JsonNode node = fields.get(key);
+        if (node == null)
+            return null;
+        String value = node.asText().trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(Map<String, JsonNode> fields, String key) {
+        String value = text(fields, key);
+        return value != null ? parse(value, key, BigDecimal::new) : null;
+    }
+
+    private static Integer integer(Map<String, JsonNode> fields, String key) {
+        String value = text(fields, key);
+        return value != null ? parse(value, key, Integer::valueOf) : null;
+    }
+
+    private static <T> T parse(String value, String key, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + ": invalid number '" + value + "'");
+        }
+    }
+
+    /** JSON arrays, or a '|'-separated list in CSV. */
+    private static List<String> images(JsonNode node) {
+        if (node == null)
+            return null;
+        List<String> images = new ArrayList<>();
+        if (node.isArray()) {
+            node.forEach(n -> images.add(n.asText()));
+        } else {
+            for (String url : node.asText().split("\\|")) {
+                if (!url.isBlank())
+                    images.add(url.trim());
+            }
+        }
+        return images;
+    }
+
+    // ── Persistence ──
+
+    private void insertBatch(List<ImportRow> batch, Vendor vendor, Report report) {
+        try {
+            List<Long> ids = transactionTemplate.execute(status -> insert(batch, vendor));
+            report.imported += batch.size();
+            publishImported(ids);
+        } catch (DataAccessException e) {
+            // One bad row fails the whole batch; retry individually to find it
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (ImportRow row : batch) {
+                try {
+                    ids.addAll(transactionTemplate.execute(status -> insert(List.of(row), vendor)));
+                    report.imported++;
+                } catch (DataAccessException rowError) {
+                    report.error(row.line(), row.request().getSku(),
+                            NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                }
+            }
+            publishImported(ids);
+        }
+    }
+
+    private List<Long> insert(List<ImportRow> rows, Vendor vendor) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_PRODUCT_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportRow row : rows) {
+                    ProductDTO.ProductRequest r = row.request();
+                    ps.setString(1, r.getName());
+                    ps.setString(2, r.getDescription());
+                    ps.setBigDecimal(3, r.getBasePrice());
+                    ps.setBigDecimal(4, PricingEngine.fromMinor(row.priceMinor()));
+                    ps.setInt(5, r.getStockQuantity());
+                    ps.setString(6, r.getImageUrl());
+                    ps.setString(7, r.getSku());
+                    ps.setBigDecimal(8, r.getWeightKg());
+                    ps.setBoolean(9, r.isFeatured());
+                    ps.setLong(10, r.getCategoryId());
+                    ps.setLong(11, vendor.getId());
+                    ps.setBigDecimal(12, r.getDiscountPercentage() != null ? r.getDiscountPercentage()
+                            : BigDecimal.ZERO);
+                    ps.setString(13, r.getTags());
+                    ps.setTimestamp(14, now);
+                    ps.setTimestamp(15, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> generated = new ArrayList<>(rows.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next())
+                        generated.add(keys.getLong(1));
+                }
+                return generated;
+            }
+        });
+
+        List<Object[]> images = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            List<String> urls = rows.get(i).request().getAdditionalImages();
+            if (urls != null) {
+                for (String url : urls)
+                    images.add(new Object[] { ids.get(i), url });
+            }
+        }
+        if (!images.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_IMAGE_SQL, images);
+        return ids;
+    }
+
+    /**
+     * Feeds a committed batch to the search, facet, suggestion and
+     * price-history indexes, so imported products become visible batch by
+     * batch rather than after the whole file.
+     */
+    private void publishImported(List<Long> ids) {
+        if (ids.isEmpty())
+            return;
+        productRepository.findAllById(ids)
+                .forEach(product -> eventPublisher.publishEvent(new ProductChangedEvent(product)));
+    }
+}
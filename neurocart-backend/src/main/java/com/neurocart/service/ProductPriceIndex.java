@@ -0,0 +1,110 @@
+package com.neurocart.service;
+
+import com.neurocart.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Per-category skip lists of (current price, id) for active, in-stock
+ * products. Answers "closest cheaper product in this category" in O(log n)
+ * without loading the category. Reads are lock-free; updates are serialized.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductPriceIndex {
+
+    private static final String LOAD_SQL = "SELECT id, category_id, current_price FROM products "
+            + "WHERE is_active = 1 AND stock_quantity > 0 AND category_id IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, ConcurrentSkipListSet<PriceKey>> byCategory = new ConcurrentHashMap<>();
+    private final Map<Long, Listing> listings = new ConcurrentHashMap<>();
+
+    private record PriceKey(long priceMinor, long productId) implements Comparable<PriceKey> {
+        @Override
+        public int compareTo(PriceKey o) {
+            int c = Long.compare(priceMinor, o.priceMinor);
+            return c != 0 ? c : Long.compare(productId, o.productId);
+        }
+    }
+
+    private record Listing(long categoryId, PriceKey key) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            put(rs.getLong(1), rs.getLong(2), PricingEngine.toMinor(rs.getBigDecimal(3)));
+        });
+        log.info("Price index built: {} products in {} categories in {} ms", listings.size(), byCategory.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /** The highest-priced listed product in the category priced strictly below {@code priceMinor}, or null. */
+    public Long closestCheaper(long categoryId, long priceMinor) {
+        ConcurrentSkipListSet<PriceKey> prices = byCategory.get(categoryId);
+        if (prices == null)
+            return null;
+        PriceKey cheaper = prices.lower(new PriceKey(priceMinor, Long.MIN_VALUE));
+        return cheaper != null ? cheaper.productId() : null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        if (product.isActive() && product.getStockQuantity() != null && product.getStockQuantity() > 0
+                && product.getCategory() != null) {
+            put(product.getId(), product.getCategory().getId(), PricingEngine.toMinor(product.getCurrentPrice()));
+        } else {
+            remove(product.getId());
+        }
+    }
+
+    /** Sold-out products leave the index; stock only comes back through a full product change. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        for (int i = 0; i < event.productIds().length; i++) {
+            if (event.stock()[i] <= 0)
+                remove(event.productIds()[i]);
+        }
+    }
+
+    @EventListener
+    public void onPricesChanged(PricesChangedEvent event) {
+        for (int i = 0; i < event.productIds().length; i++) {
+            Listing listing = listings.get(event.productIds()[i]);
+            if (listing != null)
+                put(event.productIds()[i], listing.categoryId(), event.pricesMinor()[i]);
+        }
+    }
+
+    private synchronized void put(long productId, long categoryId, long priceMinor) {
+        Listing previous = listings.get(productId);
+        PriceKey key = new PriceKey(priceMinor, productId);
+        if (previous != null) {
+            if (previous.categoryId() == categoryId && previous.key().equals(key))
+                return;
+            byCategory.get(previous.categoryId()).remove(previous.key());
+        }
+        byCategory.computeIfAbsent(categoryId, id -> new ConcurrentSkipListSet<>()).add(key);
+        listings.put(productId, new Listing(categoryId, key));
+    }
+
+    private synchronized void remove(long productId) {
+        Listing previous = listings.remove(productId);
+        if (previous != null)
+            byCategory.get(previous.categoryId()).remove(previous.key());
+    }
+}
@@ -0,0 +1,164 @@
+package com.neurocart.service;
+
+import com.neurocart.entity.Product;
+import com.neurocart.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over product name, description and tags.
+ * Posting lists are compressed bitmaps of product ids, so multi-term queries
+ * are bitmap intersections instead of a LIKE scan over the products table.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, RoaringBitmap> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> documentTerms = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int indexed = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId,
+                    PageRequest.of(0, BUILD_BATCH_SIZE));
+            for (Product p : batch) {
+                index(p);
+                lastId = p.getId();
+            }
+            indexed += batch.size();
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        log.info("Search index built: {} products, {} terms in {} ms", indexed, termCount(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        if (product.isActive()) {
+            index(product);
+        } else {
+            remove(product.getId());
+        }
+    }
+
+    public void index(Product product) {
+        int docId = Math.toIntExact(product.getId());
+        Set<String> terms = new HashSet<>();
+        terms.addAll(tokenize(product.getName()));
+        terms.addAll(tokenize(product.getDescription()));
+        terms.addAll(tokenize(product.getTags()));
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(docId);
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new RoaringBitmap()).add(docId);
+            }
+            documentTerms.put(docId, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(Math.toIntExact(productId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of active products matching every term of the query.
+     * The last term is matched as a prefix so partially typed words still hit.
+     */
+    public RoaringBitmap search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty())
+            return new RoaringBitmap();
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                RoaringBitmap matches = i == terms.size() - 1 ? prefixMatches(term) : postings.get(term);
+                if (matches == null || matches.isEmpty())
+                    return new RoaringBitmap();
+                result = result == null ? matches.clone() : RoaringBitmap.and(result, matches);
+                if (result.isEmpty())
+                    return result;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank())
+            return List.of();
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private RoaringBitmap prefixMatches(String prefix) {
+        Collection<RoaringBitmap> matches = postings
+                .subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+        if (matches.isEmpty())
+            return null;
+        return FastAggregation.or(matches.iterator());
+    }
+
+    private void removeLocked(int docId) {
+        Set<String> previous = documentTerms.remove(docId);
+        if (previous == null)
+            return;
+        for (String term : previous) {
+            RoaringBitmap posting = postings.get(term);
+            if (posting == null)
+                continue;
+            posting.remove(docId);
+            if (posting.isEmpty())
+                postings.remove(term);
+        }
+    }
+}
@@ -11,50 +11,66 @@ import com.neurocart.repository.CategoryRepository;
 import com.neurocart.repository.ProductRepository;
 import com.neurocart.repository.VendorRepository;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    // Stock moves by the edit's delta, so units sold while the edit ran are kept; restocked_units
+    // records the delta as an explicit adjustment for the hot-stock ledger
+    private static final String VENDOR_STOCK_PRICE_SQL = "UPDATE products SET stock_quantity = stock_quantity + ?, "
+            + "restocked_units = restocked_units + ?, current_price = ?, updated_at = ? "
+            + "WHERE id = ? AND stock_quantity + ? >= 0";
+    private static final String STOCK_SQL = "SELECT stock_quantity FROM products WHERE id = ?";
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final VendorRepository vendorRepository;
+    private final ProductSearchIndex searchIndex;
+    private final ProductFacetIndex facetIndex;
+    private final ProductSuggestIndex suggestIndex;
+    private final DemandCounter demandCounter;
+    private final ProductDetailCache detailCache;
+    private final PriceHistoryStore priceHistoryStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
 
     // ── Dynamic Pricing Engine ────────────────────────────────────────────────
     public BigDecimal calculateDynamicPrice(Product product) {
-        BigDecimal price = product.getBasePrice();
-
-        // Apply coupon/offer discount
-        if (product.getDiscountPercentage() != null && product.getDiscountPercentage().compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal discount = price.multiply(product.getDiscountPercentage()).divide(BigDecimal.valueOf(100));
-            price = price.subtract(discount);
-        }
-
-        // Stock scarcity surge (< 10 units → 5-15% premium)
-        if (product.getStockQuantity() < 10 && product.getStockQuantity() > 0) {
-            double surgeFactor = 1.0 + (0.15 * (1.0 - product.getStockQuantity() / 10.0));
-            price = price.multiply(BigDecimal.valueOf(surgeFactor)).setScale(2, java.math.RoundingMode.HALF_UP);
-        }
-
-        // Demand-based surge (demand > 100 → up to 10% premium)
-        if (product.getDemandCount() > 100) {
-            double demandFactor = Math.min(1.10, 1 + (product.getDemandCount() - 100.0) / 2000.0);
-            price = price.multiply(BigDecimal.valueOf(demandFactor)).setScale(2, java.math.RoundingMode.HALF_UP);
-        }
-
-        return price.max(product.getBasePrice().multiply(BigDecimal.valueOf(0.5))); // floor: 50% of base
+        return PricingEngine.fromMinor(PricingEngine.priceMinor(
+                PricingEngine.toMinor(product.getBasePrice()),
+                PricingEngine.toMinor(product.getDiscountPercentage()),
+                product.getStockQuantity(),
+                product.getDemandCount()));
     }
 
     public Page<ProductDTO.ProductSummary> getAllProducts(int page, int size, String sortBy, Long categoryId,
@@ -64,7 +80,13 @@ public class ProductService {
 
         Page<Product> products;
         if (search != null && !search.isBlank()) {
-            products = productRepository.searchProducts(search.trim(), pageable);
+            // Search hits are sorted and paged in the index; only the page's rows are loaded
+            if (!ProductFacetIndex.SORT_FIELDS.contains(pageable.getSort().iterator().next().getProperty()))
+                throw new BadRequestException("Unsupported sort field for search: " + sortBy);
+            RoaringBitmap hits = searchIndex.search(search.trim());
+            if (categoryId != null)
+                hits.and(facetIndex.category(categoryId));
+            products = findIndexedPage(hits, pageable);
         } else if (categoryId != null) {
             products = productRepository.findByCategoryIdAndActiveTrue(categoryId, pageable);
         } else {
@@ -74,18 +96,216 @@ public class ProductService {
         return products.map(p -> toSummary(p, false));
     }
 
+    // ── Keyset Pagination ─────────────────────────────────────────────────────
+    public ProductDTO.ProductCursorPage getProductsAfter(String cursor, int size, String sortBy, Long categoryId) {
+        String sortField = sortBy == null ? "createdAt" : sortBy;
+        if (!ProductFacetIndex.SORT_FIELDS.contains(sortField)) {
+            throw new BadRequestException("Unsupported sort field: " + sortField);
+        }
+        // The first page seeks from above the largest possible key
+        Object lastValue = firstPageBound(sortField);
+        long lastId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor, sortField);
+            lastValue = parseSortValue(sortField, position[0]);
+            lastId = Long.parseLong(position[1]);
+        }
+        Pageable limit = PageRequest.of(0, Math.max(1, Math.min(size, 100)));
+
+        Slice<Product> slice = switch (sortField) {
+            case "createdAt" -> categoryId == null
+                    ? productRepository.findNextByCreatedAt((LocalDateTime) lastValue, lastId, limit)
+                    : productRepository.findNextInCategoryByCreatedAt(categoryId, (LocalDateTime) lastValue, lastId,
+                            limit);
+            case "currentPrice" -> categoryId == null
+                    ? productRepository.findNextByCurrentPrice((BigDecimal) lastValue, lastId, limit)
+                    : productRepository.findNextInCategoryByCurrentPrice(categoryId, (BigDecimal) lastValue, lastId,
+                            limit);
+            case "averageRating" -> categoryId == null
+                    ? productRepository.findNextByAverageRating((Double) lastValue, lastId, limit)
+                    : productRepository.findNextInCategoryByAverageRating(categoryId, (Double) lastValue, lastId,
+                            limit);
+            case "demandCount" -> categoryId == null
+                    ? productRepository.findNextByDemandCount((Integer) lastValue, lastId, limit)
+                    : productRepository.findNextInCategoryByDemandCount(categoryId, (Integer) lastValue, lastId,
+                            limit);
+            default -> throw new BadRequestException("Unsupported sort field: " + sortField);
+        };
+
+        List<Product> content = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            Product last = content.get(content.size() - 1);
+            nextCursor = encodeCursor(sortField, sortValue(last, sortField), last.getId());
+        }
+        return ProductDTO.ProductCursorPage.builder()
+                .content(content.stream().map(p -> toSummary(p, false)).collect(Collectors.toList()))
+                .size(content.size())
+                .hasNext(slice.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static Object firstPageBound(String sortField) {
+        return switch (sortField) {
+            case "currentPrice" -> new BigDecimal("99999999.99");
+            case "averageRating" -> Double.MAX_VALUE;
+            case "demandCount" -> Integer.MAX_VALUE;
+            default -> LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+        };
+    }
+
+    private static Object parseSortValue(String sortField, String value) {
+        try {
+            return switch (sortField) {
+                case "currentPrice" -> new BigDecimal(value);
+                case "averageRating" -> Double.valueOf(value);
+                case "demandCount" -> Integer.valueOf(value);
+                default -> LocalDateTime.parse(value);
+            };
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static String sortValue(Product p, String sortField) {
+        return switch (sortField) {
+            case "currentPrice" -> p.getCurrentPrice().toPlainString();
+            case "averageRating" -> String.valueOf(p.getAverageRating());
+            case "demandCount" -> String.valueOf(p.getDemandCount());
+            default -> p.getCreatedAt().toString();
+        };
+    }
+
+    private static String encodeCursor(String sortField, String value, Long id) {
+        String raw = sortField + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, String sortField) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        if (parts.length != 3 || !parts[0].equals(sortField) || !parts[2].matches("\\d+")) {
+            throw new BadRequestException("Invalid cursor for sort field: " + sortField);
+        }
+        return new String[] { parts[1], parts[2] };
+    }
+
+    private Page<Product> findIndexedPage(RoaringBitmap hits, Pageable pageable) {
+        if (hits.isEmpty())
+            return Page.empty(pageable);
+
+        String sortBy = pageable.getSort().iterator().next().getProperty();
+        List<Long> pageIds = facetIndex.page(hits, sortBy, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(findAllInOrder(pageIds), pageable, hits.getCardinality());
+    }
+
+    @Transactional(readOnly = true)
+    public ProductDTO.FacetedProductPage browseProducts(ProductFacetIndex.Query query, String search, int page,
+            int size, String sortBy) {
+        if (sortBy != null && !ProductFacetIndex.SORT_FIELDS.contains(sortBy)) {
+            throw new BadRequestException("Unsupported sort field: " + sortBy);
+        }
+        RoaringBitmap restrictTo = search != null && !search.isBlank() ? searchIndex.search(search.trim()) : null;
+        ProductFacetIndex.Result result = facetIndex.query(query, restrictTo);
+
+        List<Long> pageIds = facetIndex.page(result.hits(), sortBy, (long) page * size, size);
+        int total = result.hits().getCardinality();
+
+        Map<String, List<ProductDTO.FacetCount>> facets = new LinkedHashMap<>();
+        facets.put(ProductFacetIndex.CATEGORY, toFacetCounts(result.counts().get(ProductFacetIndex.CATEGORY),
+                query.categoryIds(), null));
+        facets.put(ProductFacetIndex.VENDOR, toFacetCounts(result.counts().get(ProductFacetIndex.VENDOR),
+                query.vendorIds(), null));
+        facets.put(ProductFacetIndex.PRICE, toFacetCounts(result.counts().get(ProductFacetIndex.PRICE),
+                query.priceBands(), v -> ProductFacetIndex.PriceBand.valueOf(v).getLabel()));
+        facets.put(ProductFacetIndex.RATING, toFacetCounts(result.counts().get(ProductFacetIndex.RATING),
+                query.ratingBuckets(), v -> v + "★ - " + (Integer.parseInt(v) + 1) + "★"));
+        facets.put(ProductFacetIndex.IN_STOCK, toFacetCounts(result.counts().get(ProductFacetIndex.IN_STOCK),
+                query.inStock() != null ? List.of(query.inStock()) : null,
+                v -> Boolean.parseBoolean(v) ? "In stock" : "Out of stock"));
+
+        return ProductDTO.FacetedProductPage.builder()
+                .content(findAllInOrder(pageIds).stream().map(p -> toSummary(p, false)).collect(Collectors.toList()))
+                .page(page)
+                .size(size)
+                .totalElements(total)
+                .totalPages(size > 0 ? (total + size - 1) / size : 0)
+                .facets(facets)
+                .build();
+    }
+
+    private List<Product> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty())
+            return List.of();
+        Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private List<ProductDTO.FacetCount> toFacetCounts(Map<String, Integer> counts, Collection<?> selected,
+            Function<String, String> labeler) {
+        List<ProductDTO.FacetCount> result = new ArrayList<>(counts.size());
+        counts.forEach((value, count) -> result.add(ProductDTO.FacetCount.builder()
+                .value(value)
+                .label(labeler != null ? labeler.apply(value) : value)
+                .count(count)
+                .selected(selected != null && selected.stream().anyMatch(s -> String.valueOf(s).equals(value)))
+                .build()));
+        return result;
+    }
+
+    public List<ProductDTO.Suggestion> suggest(String query, int limit) {
+        return suggestIndex.suggest(query, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS));
+    }
+
+    public ProductDTO.PriceHistory getPriceHistory(Long id, LocalDateTime from, LocalDateTime to) {
+        // Served from the history store only; the products table is not touched
+        if (!priceHistoryStore.contains(id))
+            throw new ResourceNotFoundException("Product", id);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        if (start.isAfter(end))
+            throw new BadRequestException("'from' must not be after 'to'");
+
+        ZoneId zone = ZoneId.systemDefault();
+        List<ProductDTO.PricePoint> points = priceHistoryStore
+                .range(id, start.atZone(zone).toEpochSecond(), end.atZone(zone).toEpochSecond()).stream()
+                .map(p -> ProductDTO.PricePoint.builder()
+                        .timestamp(LocalDateTime.ofInstant(Instant.ofEpochSecond(p.epochSecond()), zone))
+                        .price(PricingEngine.fromMinor(p.priceMinor()))
+                        .build())
+                .toList();
+        return ProductDTO.PriceHistory.builder()
+                .productId(id)
+                .from(start)
+                .to(end)
+                .points(points)
+                .build();
+    }
+
     public ProductDTO.ProductResponse getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", id));
-        // Increment demand count
-        product.setDemandCount(product.getDemandCount() + 1);
-        product.setCurrentPrice(calculateDynamicPrice(product));
-        productRepository.save(product);
-        return toResponse(product, false, false);
+        ProductDTO.ProductResponse response = detailCache.get(id, () -> {
+            Product product = productRepository.findWithDetailsById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", id));
+            ProductDTO.ProductResponse loaded = toResponse(product, false, false);
+            if (loaded.getAdditionalImages() != null)
+                loaded.setAdditionalImages(List.copyOf(loaded.getAdditionalImages()));
+            return new ProductDetailCache.Loaded(loaded, product.getUpdatedAt());
+        });
+        // Demand is buffered and flushed in batches; pending views are added for display only.
+        // The stored price is maintained by the scheduled PricingEngine run.
+        demandCounter.increment(id);
+        response.setDemandCount(response.getDemandCount() + (int) demandCounter.pending(id));
+        return response;
     }
 
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
+    @CacheEvict(value = { "products", "featuredProducts", "similarProducts" }, allEntries = true)
     public ProductDTO.ProductResponse createProduct(ProductDTO.ProductRequest request, User currentUser) {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category", request.getCategoryId()));
@@ -112,11 +332,13 @@ public class ProductService {
                 .build();
 
         product.setCurrentPrice(calculateDynamicPrice(product));
-        return toResponse(productRepository.save(product), false, false);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved));
+        return toResponse(saved, false, false);
     }
 
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
+    @CacheEvict(value = { "products", "featuredProducts", "similarProducts" }, allEntries = true)
     public ProductDTO.ProductResponse updateProduct(Long id, ProductDTO.ProductRequest request, User currentUser) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", id));
@@ -124,6 +346,7 @@ public class ProductService {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category", request.getCategoryId()));
 
+        int stockDelta = request.getStockQuantity() - product.getStockQuantity();
         product.setName(request.getName());
         product.setDescription(request.getDescription());
         product.setBasePrice(request.getBasePrice());
@@ -138,18 +361,26 @@ public class ProductService {
         product.setCategory(category);
         product.setCurrentPrice(calculateDynamicPrice(product));
 
-        return toResponse(productRepository.save(product), false, false);
+        // The entity write leaves stock and price alone; both go through one conditional UPDATE
+        Product saved = productRepository.save(product);
+        if (jdbcTemplate.update(VENDOR_STOCK_PRICE_SQL, stockDelta, stockDelta, saved.getCurrentPrice(),
+                Timestamp.valueOf(LocalDateTime.now()), id, stockDelta) != 1) {
+            throw new BadRequestException("Stock cannot be reduced below the units already sold");
+        }
+        saved.setStockQuantity(jdbcTemplate.queryForObject(STOCK_SQL, Integer.class, id));
+        eventPublisher.publishEvent(new ProductChangedEvent(saved));
+        return toResponse(saved, false, false);
     }
 
-    @CacheEvict(value = "products", allEntries = true)
+    @CacheEvict(value = { "products", "featuredProducts", "similarProducts" }, allEntries = true)
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", id));
         product.setActive(false);
-        productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productRepository.save(product)));
     }
 
-    @Cacheable("featuredProducts")
+    @Cacheable(value = "featuredProducts", sync = true)
     public List<ProductDTO.ProductSummary> getFeaturedProducts() {
         return productRepository.findByFeaturedTrueAndActiveTrueOrderByCreatedAtDesc()
                 .stream().map(p -> toSummary(p, false)).collect(Collectors.toList());
@@ -0,0 +1,290 @@
+package com.neurocart.service;
+
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.entity.Product;
+import com.neurocart.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Prefix trie over product names and tags for type-ahead suggestions. Every
+ * node caches the top entries of its subtree by demand, so a lookup is a walk
+ * down the prefix plus a copy of at most {@link #MAX_SUGGESTIONS} entries.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Deeper keys share the node at this depth, which bounds the trie to a few nodes per entry
+    private static final int MAX_DEPTH = 12;
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private static final Comparator<Entry> BY_WEIGHT = Comparator.<Entry>comparingLong(e -> e.weight).reversed()
+            .thenComparing(e -> e.key);
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Long, Set<String>> productKeys = new HashMap<>();
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        final List<Entry> entries = new ArrayList<>(1);
+        List<Entry> top = List.of();
+    }
+
+    private static final class Entry {
+        final String key;
+        String text;
+        final Map<Long, Long> contributions = new HashMap<>();
+        final Set<Long> nameProducts = new HashSet<>();
+        long weight;
+
+        Entry(String key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId,
+                    PageRequest.of(0, BUILD_BATCH_SIZE));
+            for (Product p : batch) {
+                index(p);
+                lastId = p.getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        log.info("Suggest index built: {} entries in {} ms", size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        if (product.isActive()) {
+            index(product);
+        } else {
+            remove(product.getId());
+        }
+    }
+
+    /** Adds flushed demand to the weight of every key the product contributes to. */
+    @EventListener
+    public void onDemandFlushed(DemandFlushedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Set<String> touched = new HashSet<>();
+            event.deltas().forEach((productId, delta) -> {
+                for (String key : productKeys.getOrDefault(productId, Set.of())) {
+                    Entry entry = entries.get(key);
+                    if (entry == null)
+                        continue;
+                    entry.contributions.merge(productId, delta, Long::sum);
+                    entry.weight += delta;
+                    touched.add(key);
+                }
+            });
+            touched.forEach(this::refreshPath);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        long weight = 1L + (product.getDemandCount() != null ? product.getDemandCount() : 0);
+        Map<String, String> names = new LinkedHashMap<>();
+        Map<String, String> tags = new LinkedHashMap<>();
+        putNormalized(names, product.getName());
+        if (product.getTags() != null) {
+            for (String tag : product.getTags().split(",")) {
+                putNormalized(tags, tag);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<String> touched = new HashSet<>(removeContributions(product.getId()));
+            Set<String> keys = new HashSet<>();
+            names.forEach((key, text) -> {
+                addContribution(key, text, product.getId(), weight, true);
+                keys.add(key);
+            });
+            tags.forEach((key, text) -> {
+                addContribution(key, text, product.getId(), weight, false);
+                keys.add(key);
+            });
+            productKeys.put(product.getId(), keys);
+            touched.addAll(keys);
+            touched.forEach(this::refreshPath);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeContributions(productId).forEach(this::refreshPath);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductDTO.Suggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0)
+            return List.of();
+
+        List<Entry> matches;
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = Math.min(prefix.length(), MAX_DEPTH);
+            for (int i = 0; i < depth && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            if (node == null)
+                return List.of();
+            if (prefix.length() <= MAX_DEPTH) {
+                matches = node.top;
+            } else {
+                matches = node.entries.stream()
+                        .filter(e -> e.key.startsWith(prefix))
+                        .sorted(BY_WEIGHT)
+                        .limit(MAX_SUGGESTIONS)
+                        .collect(Collectors.toList());
+            }
+            return matches.stream()
+                    .limit(limit)
+                    .map(e -> ProductDTO.Suggestion.builder()
+                            .text(e.text)
+                            .type(e.nameProducts.isEmpty() ? "TAG" : "PRODUCT")
+                            .productId(e.nameProducts.size() == 1 ? e.nameProducts.iterator().next() : null)
+                            .weight(e.weight)
+                            .build())
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null)
+            return "";
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void putNormalized(Map<String, String> target, String text) {
+        String key = normalize(text);
+        if (!key.isEmpty())
+            target.putIfAbsent(key, text.trim());
+    }
+
+    private void addContribution(String key, String text, Long productId, long weight, boolean isName) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, text);
+            entries.put(key, entry);
+            nodeFor(key, true).entries.add(entry);
+        }
+        Long previous = entry.contributions.put(productId, weight);
+        entry.weight += weight - (previous != null ? previous : 0L);
+        if (isName) {
+            entry.nameProducts.add(productId);
+            entry.text = text;
+        }
+    }
+
+    private Set<String> removeContributions(Long productId) {
+        Set<String> keys = productKeys.remove(productId);
+        if (keys == null)
+            return Set.of();
+        for (String key : keys) {
+            Entry entry = entries.get(key);
+            if (entry == null)
+                continue;
+            Long weight = entry.contributions.remove(productId);
+            if (weight != null)
+                entry.weight -= weight;
+            entry.nameProducts.remove(productId);
+            if (entry.contributions.isEmpty()) {
+                entries.remove(key);
+                Node node = nodeFor(key, false);
+                if (node != null)
+                    node.entries.remove(entry);
+            }
+        }
+        return keys;
+    }
+
+    private Node nodeFor(String key, boolean create) {
+        Node node = root;
+        int depth = Math.min(key.length(), MAX_DEPTH);
+        for (int i = 0; i < depth; i++) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                if (!create)
+                    return null;
+                child = new Node();
+                node.children.put(key.charAt(i), child);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /** Recomputes cached top lists from the key's node back up to the root, pruning empty nodes. */
+    private void refreshPath(String key) {
+        int depth = Math.min(key.length(), MAX_DEPTH);
+        Node[] path = new Node[depth + 1];
+        path[0] = root;
+        for (int i = 0; i < depth; i++) {
+            Node child = path[i].children.get(key.charAt(i));
+            if (child == null) {
+                depth = i;
+                break;
+            }
+            path[i + 1] = child;
+        }
+        for (int i = depth; i >= 0; i--) {
+            Node node = path[i];
+            List<Entry> candidates = new ArrayList<>(node.entries);
+            for (Node child : node.children.values()) {
+                candidates.addAll(child.top);
+            }
+            candidates.sort(BY_WEIGHT);
+            node.top = List.copyOf(candidates.subList(0, Math.min(MAX_SUGGESTIONS, candidates.size())));
+            if (i > 0 && node.top.isEmpty() && node.children.isEmpty()) {
+                path[i - 1].children.remove(key.charAt(i - 1));
+            }
+        }
+    }
+}
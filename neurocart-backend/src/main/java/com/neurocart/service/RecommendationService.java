@@ -7,6 +7,7 @@ import com.neurocart.entity.User;
 import com.neurocart.repository.ProductRepository;
 import com.neurocart.repository.ProductViewRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -66,6 +67,7 @@ public class RecommendationService {
         return recommendations.stream().limit(8).collect(Collectors.toList());
     }
 
+    @Cacheable(value = "similarProducts", sync = true)
     public List<ProductDTO.ProductSummary> getSimilarProducts(Long productId) {
         Product product = productRepository.findById(productId).orElseThrow();
         return productRepository
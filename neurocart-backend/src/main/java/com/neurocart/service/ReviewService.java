@@ -9,6 +9,7 @@ import com.neurocart.repository.ProductRepository;
 import com.neurocart.repository.ReviewRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -23,6 +24,7 @@ public class ReviewService {
 
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Review> getProductReviews(Long productId, int page, int size) {
         return reviewRepository.findByProductId(productId,
@@ -55,7 +57,7 @@ public class ReviewService {
         Long count = reviewRepository.countByProductId(productId);
         product.setAverageRating(newAvg != null ? Math.round(newAvg * 10.0) / 10.0 : 0.0);
         product.setTotalReviews(count != null ? count.intValue() : 0);
-        productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productRepository.save(product)));
 
         return saved;
     }
@@ -5,42 +5,72 @@ import com.neurocart.entity.Cart;
 import com.neurocart.entity.Product;
 import com.neurocart.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SmartCartService {
 
+    private static final int MAX_BUNDLES = 3;
+
     private final ProductRepository productRepository;
+    private final ProductPriceIndex priceIndex;
+    private final CoPurchaseIndex coPurchaseIndex;
+
+    @Value("${neurocart.bundles.discount-percent:10}")
+    private BigDecimal bundleDiscountPercent;
+
+    /** Minimum number of orders a pair must appear in before it is suggested. */
+    @Value("${neurocart.bundles.min-support:2}")
+    private int minSupport;
 
     public List<CartDTO.SmartSuggestion> findAlternatives(List<Cart> cartItems) {
-        List<CartDTO.SmartSuggestion> suggestions = new ArrayList<>();
+        // Closest cheaper in-stock product in the same category, from the price index
+        Map<Long, Long> alternativeIds = new LinkedHashMap<>();
         for (Cart item : cartItems) {
             Product original = item.getProduct();
-            // Find cheaper alternatives in same category
-            List<Product> alternatives = productRepository
-                    .findByCategoryIdAndActiveTrueAndIdNot(original.getCategory().getId(), original.getId());
+            if (original.getCategory() == null)
+                continue;
+            Long alternativeId = priceIndex.closestCheaper(original.getCategory().getId(),
+                    PricingEngine.toMinor(original.getCurrentPrice()));
+            if (alternativeId != null)
+                alternativeIds.put(original.getId(), alternativeId);
+        }
+        if (alternativeIds.isEmpty())
+            return new ArrayList<>();
 
-            alternatives.stream()
-                    .filter(alt -> alt.getCurrentPrice().compareTo(original.getCurrentPrice()) < 0)
-                    .findFirst()
-                    .ifPresent(alt -> {
-                        BigDecimal savings = original.getCurrentPrice().subtract(alt.getCurrentPrice());
-                        suggestions.add(CartDTO.SmartSuggestion.builder()
-                                .originalProductId(original.getId())
-                                .originalProductName(original.getName())
-                                .alternativeProductId(alt.getId())
-                                .alternativeProductName(alt.getName())
-                                .alternativeImage(alt.getImageUrl())
-                                .originalPrice(original.getCurrentPrice())
-                                .alternativePrice(alt.getCurrentPrice())
-                                .savings(savings)
-                                .build());
-                    });
+        Map<Long, Product> alternatives = productRepository.findAllById(new HashSet<>(alternativeIds.values()))
+                .stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<CartDTO.SmartSuggestion> suggestions = new ArrayList<>();
+        for (Cart item : cartItems) {
+            Product original = item.getProduct();
+            Product alt = alternatives.get(alternativeIds.get(original.getId()));
+            // The index is updated after commit; skip anything that changed since
+            if (alt == null || !alt.isActive() || alt.getCurrentPrice().compareTo(original.getCurrentPrice()) >= 0)
+                continue;
+            BigDecimal savings = original.getCurrentPrice().subtract(alt.getCurrentPrice());
+            suggestions.add(CartDTO.SmartSuggestion.builder()
+                    .originalProductId(original.getId())
+                    .originalProductName(original.getName())
+                    .alternativeProductId(alt.getId())
+                    .alternativeProductName(alt.getName())
+                    .alternativeImage(alt.getImageUrl())
+                    .originalPrice(original.getCurrentPrice())
+                    .alternativePrice(alt.getCurrentPrice())
+                    .savings(savings)
+                    .build());
         }
         return suggestions;
     }
@@ -50,25 +80,55 @@ public class SmartCartService {
         if (cartItems.isEmpty())
             return bundles;
 
-        // Suggest a "Popular Bundle" from the category of the first cart item
-        Product firstProduct = cartItems.get(0).getProduct();
-        List<Product> bundleProducts = productRepository
-                .findByCategoryIdAndActiveTrueAndIdNot(firstProduct.getCategory().getId(), firstProduct.getId());
+        // Most frequent co-purchase partner of each cart product that is not already in the cart
+        Set<Long> inCart = cartItems.stream().map(c -> c.getProduct().getId()).collect(Collectors.toSet());
+        Map<Long, Long> companionIds = new LinkedHashMap<>();
+        for (Cart item : cartItems) {
+            if (companionIds.size() == MAX_BUNDLES)
+                break;
+            CoPurchaseIndex.Companions companions = coPurchaseIndex.companionsOf(item.getProduct().getId());
+            for (int i = 0; i < companions.productIds().length && companions.counts()[i] >= minSupport; i++) {
+                long companionId = companions.productIds()[i];
+                if (!inCart.contains(companionId) && !companionIds.containsValue(companionId)) {
+                    companionIds.put(item.getProduct().getId(), companionId);
+                    break;
+                }
+            }
+        }
 
-        if (!bundleProducts.isEmpty()) {
-            Product bundleItem = bundleProducts.get(0);
-            BigDecimal originalTotal = firstProduct.getCurrentPrice().add(bundleItem.getCurrentPrice());
-            BigDecimal bundlePrice = originalTotal.multiply(BigDecimal.valueOf(0.90)).setScale(2,
-                    java.math.RoundingMode.HALF_UP);
-            BigDecimal savings = originalTotal.subtract(bundlePrice);
+        boolean fromHistory = !companionIds.isEmpty();
+        if (!fromHistory) {
+            // No co-purchase history yet: pair the first item with a cheaper add-on from its category
+            Product first = cartItems.get(0).getProduct();
+            if (first.getCategory() != null) {
+                Long addOnId = priceIndex.closestCheaper(first.getCategory().getId(),
+                        PricingEngine.toMinor(first.getCurrentPrice()));
+                if (addOnId != null && !inCart.contains(addOnId))
+                    companionIds.put(first.getId(), addOnId);
+            }
+        }
+        if (companionIds.isEmpty())
+            return bundles;
 
+        Map<Long, Product> companions = productRepository.findAllById(new HashSet<>(companionIds.values()))
+                .stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+        String bundleName = (fromHistory ? "🔥 Frequently Bought Together" : "🔥 Popular Bundle")
+                + " - Save " + bundleDiscountPercent.stripTrailingZeros().toPlainString() + "%";
+        BigDecimal priceFactor = BigDecimal.ONE.subtract(bundleDiscountPercent.movePointLeft(2));
+        for (Cart item : cartItems) {
+            Product product = item.getProduct();
+            Product companion = companions.get(companionIds.get(product.getId()));
+            if (companion == null || !companion.isActive() || companion.getStockQuantity() <= 0)
+                continue;
+            BigDecimal originalTotal = product.getCurrentPrice().add(companion.getCurrentPrice());
+            BigDecimal bundlePrice = originalTotal.multiply(priceFactor).setScale(2, RoundingMode.HALF_UP);
             bundles.add(CartDTO.BundleSuggestion.builder()
-                    .bundleName("🔥 Popular Bundle - Save 10%")
-                    .productIds(List.of(firstProduct.getId(), bundleItem.getId()))
-                    .productNames(List.of(firstProduct.getName(), bundleItem.getName()))
+                    .bundleName(bundleName)
+                    .productIds(List.of(product.getId(), companion.getId()))
+                    .productNames(List.of(product.getName(), companion.getName()))
                     .originalTotal(originalTotal)
                     .bundlePrice(bundlePrice)
-                    .savings(savings)
+                    .savings(originalTotal.subtract(bundlePrice))
                     .build());
         }
         return bundles;
@@ -0,0 +1,176 @@
+package com.neurocart.service;
+
+import com.neurocart.util.CrockfordBase32;
+import com.neurocart.util.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snowflake ids rendered as 13 Crockford base32 characters, e.g.
+ * {@code NC-0A1B2C3D4E5F6}. Numbers increase with time, so new orders append
+ * to the right edge of the unique index instead of splitting random pages.
+ * <p>
+ * Every running node needs a distinct node id (0-1023). An operator can pin
+ * one with {@code neurocart.orders.node-id}; otherwise the node leases a free
+ * id from {@code order_node_leases} at startup and renews it every third of
+ * {@code neurocart.orders.node-lease-seconds}. Lease times come from the
+ * database clock. Ids are only issued while the lease is known to be held:
+ * past its local deadline the generator renews (or, if the id was taken
+ * over, leases a new one) before numbering the next order, and fails rather
+ * than reuse an id another node may hold. Startup fails if no id is free.
+ */
+@Component
+@ConditionalOnProperty(name = "neurocart.orders.id-scheme", havingValue = "snowflake", matchIfMissing = true)
+@Slf4j
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    private static final String LEASED_SQL = "SELECT node_id FROM order_node_leases "
+            + "WHERE expires_at >= CURRENT_TIMESTAMP";
+    private static final String TAKE_EXPIRED_SQL = "UPDATE order_node_leases SET owner = ?, "
+            + "expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) WHERE node_id = ? "
+            + "AND expires_at < CURRENT_TIMESTAMP";
+    private static final String INSERT_SQL = "INSERT INTO order_node_leases (node_id, owner, expires_at) "
+            + "VALUES (?, ?, TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP))";
+    private static final String RENEW_SQL = "UPDATE order_node_leases SET "
+            + "expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) WHERE node_id = ? AND owner = ?";
+    private static final String RELEASE_SQL = "DELETE FROM order_node_leases WHERE node_id = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long leaseSeconds;
+    private final String owner = hostName() + "/" + UUID.randomUUID();
+
+    // A pinned node id is configured, not leased, and never expires
+    private record Lease(long nodeId, SnowflakeIdGenerator ids, long validUntilNanos, boolean pinned) {
+    }
+
+    // Null until the first lease is taken
+    private volatile Lease lease;
+
+    public SnowflakeOrderNumberGenerator(JdbcTemplate jdbcTemplate,
+            @Value("${neurocart.orders.node-id:-1}") long nodeId,
+            @Value("${neurocart.orders.node-lease-seconds:60}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseSeconds = leaseSeconds;
+        if (nodeId >= 0)
+            lease = new Lease(nodeId, new SnowflakeIdGenerator(nodeId), 0, true);
+    }
+
+    @Override
+    public String orderNumber() {
+        return "NC-" + CrockfordBase32.encode(nextId());
+    }
+
+    @Override
+    public String trackingNumber() {
+        return "TRK-" + CrockfordBase32.encode(nextId());
+    }
+
+    public long nodeId() {
+        return currentLease().nodeId();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void acquire() {
+        if (lease == null)
+            lease = claim();
+    }
+
+    @Scheduled(fixedDelayString = "#{${neurocart.orders.node-lease-seconds:60} * 1000 / 3}")
+    public void renew() {
+        try {
+            refresh();
+        } catch (DataAccessException e) {
+            log.warn("Could not renew order node id lease: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        Lease current = lease;
+        if (current == null || current.pinned())
+            return;
+        lease = null;
+        try {
+            jdbcTemplate.update(RELEASE_SQL, current.nodeId(), owner);
+        } catch (DataAccessException e) {
+            log.warn("Could not release order node id {}: {}", current.nodeId(), e.getMessage());
+        }
+    }
+
+    private long nextId() {
+        return currentLease().ids().nextId();
+    }
+
+    private Lease currentLease() {
+        Lease current = lease;
+        if (current != null && (current.pinned() || System.nanoTime() - current.validUntilNanos() < 0))
+            return current;
+        return refresh();
+    }
+
+    private synchronized Lease refresh() {
+        Lease current = lease;
+        if (current == null)
+            return lease = claim();
+        if (current.pinned())
+            return current;
+        long deadline = deadline();
+        if (jdbcTemplate.update(RENEW_SQL, leaseSeconds, current.nodeId(), owner) == 1)
+            return lease = new Lease(current.nodeId(), current.ids(), deadline, false);
+        log.warn("Order node id {} was taken over by another node; leasing a new one", current.nodeId());
+        return lease = claim();
+    }
+
+    private Lease claim() {
+        Set<Integer> leased = new HashSet<>(jdbcTemplate.queryForList(LEASED_SQL, Integer.class));
+        for (int nodeId = 0; nodeId <= SnowflakeIdGenerator.MAX_NODE_ID; nodeId++) {
+            if (leased.contains(nodeId))
+                continue;
+            long deadline = deadline();
+            boolean claimed = jdbcTemplate.update(TAKE_EXPIRED_SQL, owner, leaseSeconds, nodeId) == 1;
+            if (!claimed) {
+                try {
+                    claimed = jdbcTemplate.update(INSERT_SQL, nodeId, owner, leaseSeconds) == 1;
+                } catch (DuplicateKeyException e) {
+                    // Held by a live node, or claimed since the scan
+                }
+            }
+            if (claimed) {
+                log.info("Leased order node id {} for {} s", nodeId, leaseSeconds);
+                return new Lease(nodeId, new SnowflakeIdGenerator(nodeId), deadline, false);
+            }
+        }
+        throw new IllegalStateException("No free order node id: all " + (SnowflakeIdGenerator.MAX_NODE_ID + 1)
+                + " are leased");
+    }
+
+    // Taken before the statement runs, so it never outlasts the expiry the database writes
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds) * 9 / 10;
+    }
+
+    private static String hostName() {
+        try {
+            String name = InetAddress.getLocalHost().getHostName();
+            return name.length() > 60 ? name.substring(0, 60) : name;
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.neurocart.service;
+
+/**
+ * Published when checkouts or hot-stock reconciliation have moved stock and
+ * nothing else on the rows changed. Stock levels are aligned by index with
+ * the product ids. Only views that depend on stock listen, after commit.
+ */
+public record StockChangedEvent(long[] productIds, int[] stock) {
+}
@@ -0,0 +1,22 @@
+package com.neurocart.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/** The original random-prefix numbers, kept selectable with {@code neurocart.orders.id-scheme=uuid}. */
+@Component
+@ConditionalOnProperty(name = "neurocart.orders.id-scheme", havingValue = "uuid")
+public class UuidOrderNumberGenerator implements OrderNumberGenerator {
+
+    @Override
+    public String orderNumber() {
+        return "NC-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Override
+    public String trackingNumber() {
+        return "TRK-" + UUID.randomUUID().toString().substring(0, 10).toUpperCase();
+    }
+}
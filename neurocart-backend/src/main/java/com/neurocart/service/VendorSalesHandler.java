@@ -0,0 +1,48 @@
+package com.neurocart.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rolls each placed order into {@code vendors.total_sales}, per vendor of
+ * the ordered products. The update shares the outbox row's transaction, so
+ * every order is counted exactly once however often delivery is retried.
+ */
+@Component
+@RequiredArgsConstructor
+public class VendorSalesHandler implements OutboxHandler<OrderPlacedEvent> {
+
+    private static final String SALES_SQL = "SELECT p.vendor_id, SUM(oi.total_price) FROM order_items oi "
+            + "JOIN products p ON p.id = oi.product_id WHERE oi.order_id = ? AND p.vendor_id IS NOT NULL "
+            + "GROUP BY p.vendor_id ORDER BY p.vendor_id";
+    private static final String ADD_SQL = "UPDATE vendors SET total_sales = COALESCE(total_sales, 0) + ? "
+            + "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String name() {
+        return "vendor-sales";
+    }
+
+    @Override
+    public String eventType() {
+        return OrderPlacedEvent.TYPE;
+    }
+
+    @Override
+    public Class<OrderPlacedEvent> payloadType() {
+        return OrderPlacedEvent.class;
+    }
+
+    @Override
+    public void handle(OrderPlacedEvent event) {
+        List<Object[]> sales = jdbcTemplate.query(SALES_SQL,
+                (rs, i) -> new Object[] { rs.getBigDecimal(2).doubleValue(), rs.getLong(1) }, event.orderId());
+        if (!sales.isEmpty())
+            jdbcTemplate.batchUpdate(ADD_SQL, sales);
+    }
+}
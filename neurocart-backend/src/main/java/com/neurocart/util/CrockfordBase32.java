@@ -0,0 +1,27 @@
+package com.neurocart.util;
+
+/**
+ * Crockford base32 for non-negative longs: digits and upper-case letters
+ * without I, L, O and U, so codes survive being read aloud or retyped.
+ * Output is fixed-width, so string order matches numeric order.
+ */
+public final class CrockfordBase32 {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    // 63 bits need 13 five-bit digits
+    public static final int LONG_WIDTH = 13;
+
+    private CrockfordBase32() {
+    }
+
+    public static String encode(long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value: " + value);
+        char[] out = new char[LONG_WIDTH];
+        for (int i = LONG_WIDTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,75 @@
+package com.neurocart.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, fixed-bucket latency histogram. Percentiles are reported as the
+ * upper bound of the bucket they fall in, which is precise enough for dashboards.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MICROS = {
+            50, 100, 250, 500,
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000, Long.MAX_VALUE
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int i = 0;
+        while (micros > BOUNDS_MICROS[i])
+            i++;
+        buckets[i].increment();
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("meanMs", total > 0 ? totalMicros.sum() / 1000.0 / total : 0.0);
+        snapshot.put("p50Ms", percentileMs(counts, total, 0.50));
+        snapshot.put("p95Ms", percentileMs(counts, total, 0.95));
+        snapshot.put("p99Ms", percentileMs(counts, total, 0.99));
+        snapshot.put("maxMs", maxMicros.get() / 1000.0);
+        return snapshot;
+    }
+
+    private double percentileMs(long[] counts, long total, double quantile) {
+        if (total == 0)
+            return 0.0;
+        long threshold = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= threshold)
+                return (i == counts.length - 1 ? maxMicros.get() : BOUNDS_MICROS[i]) / 1000.0;
+        }
+        return maxMicros.get() / 1000.0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.neurocart.util;
+
+import com.neurocart.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the
+ * loader, callers arriving while it is in flight wait for its result (or its
+ * exception) instead of repeating the work. Waiters give up after the
+ * configured timeout with a {@link ServiceUnavailableException}.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Call<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicLong maxCallersPerLoad = new AtomicLong();
+
+    private static final class Call<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final AtomicInteger callers = new AtomicInteger(1);
+    }
+
+    public SingleFlight(Duration timeout) {
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        Call<V> call = new Call<>();
+        Call<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            existing.callers.incrementAndGet();
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            call.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            call.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+            loads.increment();
+            maxCallersPerLoad.accumulateAndGet(call.callers.get(), Math::max);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long l = loads.sum();
+        long c = coalesced.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loads", l);
+        stats.put("coalescedCallers", c);
+        stats.put("callersPerLoad", l == 0 ? 0.0 : (double) (l + c) / l);
+        stats.put("maxCallersPerLoad", maxCallersPerLoad.get());
+        stats.put("failures", failures.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    private V await(Call<V> call) {
+        try {
+            return call.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new ServiceUnavailableException("Timed out waiting for a concurrent load");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted waiting for a concurrent load");
+        } catch (ExecutionException e) {
+            // The leader's own exception, rethrown as-is to every waiter
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
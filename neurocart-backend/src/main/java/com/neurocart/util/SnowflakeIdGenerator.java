@@ -0,0 +1,42 @@
+package com.neurocart.util;
+
+/**
+ * 63-bit time-ordered ids: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * 10 bits of node id and a 12-bit per-millisecond sequence. Nodes with
+ * distinct ids never collide and need no coordination.
+ * <p>
+ * Ids never go backwards on a node: if the clock steps back, or the 4096
+ * ids of a millisecond run out, the generator keeps counting on its last
+ * timestamp and carries into the next millisecond instead of waiting.
+ */
+public class SnowflakeIdGenerator {
+
+    public static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID)
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    public synchronized long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        if (now > lastMillis) {
+            lastMillis = now;
+            sequence = 0;
+        } else if (++sequence > SEQUENCE_MASK) {
+            lastMillis++;
+            sequence = 0;
+        }
+        return lastMillis << (NODE_BITS + SEQUENCE_BITS) | nodeBits | sequence;
+    }
+}
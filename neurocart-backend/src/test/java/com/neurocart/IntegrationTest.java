@@ -0,0 +1,101 @@
+package com.neurocart;
+
+import com.neurocart.dto.OrderDTO;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.repository.ProductRepository;
+import com.neurocart.repository.UserRepository;
+import com.neurocart.service.CartStore;
+import com.neurocart.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Boots the application against an in-memory H2 database in MySQL mode. All
+ * test classes share one context, so fixtures create their own uniquely named
+ * rows instead of relying on a clean database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class IntegrationTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected CartStore cartStore;
+
+    @Autowired
+    protected OrderService orderService;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    protected Product product(int stock, String price) {
+        int n = SEQUENCE.incrementAndGet();
+        return productRepository.save(Product.builder()
+                .name("Test product " + n)
+                .description("Fixture product " + n)
+                .basePrice(new BigDecimal(price))
+                .currentPrice(new BigDecimal(price))
+                .stockQuantity(stock)
+                .sku("TEST-" + n)
+                .build());
+    }
+
+    protected User customer() {
+        int n = SEQUENCE.incrementAndGet();
+        return userRepository.save(User.builder()
+                .username("customer" + n)
+                .email("customer" + n + "@test.neurocart.com")
+                .password("unused")
+                .fullName("Customer " + n)
+                .build());
+    }
+
+    protected void addToCart(User user, Product product, int quantity) {
+        cartStore.update(user.getId(), product.getId(), line -> new CartStore.Line(product.getId(), quantity,
+                product.getCurrentPrice(), LocalDateTime.now()));
+    }
+
+    protected OrderDTO.OrderResponse checkout(User user, String couponCode) {
+        OrderDTO.PlaceOrderRequest request = new OrderDTO.PlaceOrderRequest();
+        request.setShippingAddress("1 Test Street");
+        request.setCouponCode(couponCode);
+        return orderService.placeOrder(user, request);
+    }
+
+    protected int stockOf(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class,
+                productId);
+    }
+
+    /**
+     * Counts the statements Hibernate prepares while {@code action} runs.
+     * Background jobs use JdbcTemplate, which Hibernate does not see, so the
+     * count covers the action alone.
+     */
+    protected long statementsIn(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
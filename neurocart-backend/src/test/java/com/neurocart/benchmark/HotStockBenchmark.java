@@ -0,0 +1,87 @@
+package com.neurocart.benchmark;
+
+import com.neurocart.repository.ProductRepository;
+import com.neurocart.service.HotStockLedger;
+import com.zaxxer.hikari.HikariDataSource;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout-style stock deduction on one product from many threads: the
+ * conditional row UPDATE every order used before, against a reservation from
+ * {@link HotStockLedger}. Both run inside a transaction, as they do in
+ * {@code OrderService}. H2 takes a row lock per UPDATE like MySQL does, but
+ * absolute numbers are only comparable with each other.
+ * <p>
+ * {@code mvn -Pbenchmark -DskipTests -Dbenchmark=HotStockBenchmark test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HotStockBenchmark {
+
+    private static final String DEDUCT_STOCK_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, "
+            + "updated_at = ? WHERE id = ? AND stock_quantity >= ?";
+    private static final long ROW_PRODUCT = 1;
+    private static final long HOT_PRODUCT = 2;
+    private static final int STOCK = 2_000_000_000;
+
+    @Param({ "16" })
+    int shards;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private HotStockLedger ledger;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:hotstock;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(32);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock_quantity INT NOT NULL, "
+                + "restocked_units BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO products (id, stock_quantity) VALUES (?, ?), (?, ?)",
+                ROW_PRODUCT, STOCK, HOT_PRODUCT, STOCK);
+
+        ledger = new HotStockLedger(jdbcTemplate, Mockito.mock(ProductRepository.class), event -> {
+        });
+        ledger.enable(HOT_PRODUCT, shards);
+    }
+
+    @Setup(Level.Iteration)
+    public void reconcile() {
+        ledger.reconcile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ledger.shutdown();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int rowUpdate() {
+        return transactionTemplate.execute(status -> jdbcTemplate.update(DEDUCT_STOCK_SQL, 1,
+                Timestamp.valueOf(LocalDateTime.now()), ROW_PRODUCT, 1));
+    }
+
+    @Benchmark
+    public HotStockLedger.Result hotLedger() {
+        return transactionTemplate.execute(status -> ledger.reserve(HOT_PRODUCT, 1));
+    }
+}
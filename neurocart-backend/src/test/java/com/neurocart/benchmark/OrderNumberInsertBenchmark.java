@@ -0,0 +1,102 @@
+package com.neurocart.benchmark;
+
+import com.neurocart.service.OrderNumberGenerator;
+import com.neurocart.service.SnowflakeOrderNumberGenerator;
+import com.neurocart.service.UuidOrderNumberGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order inserts into a table that already holds {@code existing} orders,
+ * numbered by the time-ordered snowflake scheme against the random UUID
+ * prefix it replaced. Only the unique {@code order_number} index differs:
+ * snowflake numbers land on its right edge, UUID prefixes anywhere. The
+ * 8-character UUID prefix also collides at this size; a collision is
+ * retried with a new number, as a checkout would have to, and the measured
+ * ones are printed at teardown. H2 keeps the table in memory, so page
+ * splits cost CPU rather than I/O and the gap on MySQL is wider.
+ * <p>
+ * {@code mvn -Pbenchmark -DskipTests -Dbenchmark=OrderNumberInsertBenchmark test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderNumberInsertBenchmark {
+
+    private static final String INSERT_SQL = "INSERT INTO orders (order_number, user_id, total_amount, "
+            + "created_at) VALUES (?, ?, ?, ?)";
+    private static final int PRELOAD_BATCH = 10_000;
+
+    @Param({ "snowflake", "uuid" })
+    String scheme;
+
+    @Param({ "500000" })
+    int existing;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private OrderNumberGenerator generator;
+    private final BigDecimal total = new BigDecimal("1499.00");
+    private long collisions;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:ordernumbers;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "order_number VARCHAR(20) NOT NULL, user_id BIGINT NOT NULL, total_amount DECIMAL(10, 2), "
+                + "created_at TIMESTAMP, CONSTRAINT uk_orders_order_number UNIQUE (order_number))");
+        // A pinned node id needs no lease table
+        generator = scheme.equals("uuid") ? new UuidOrderNumberGenerator()
+                : new SnowflakeOrderNumberGenerator(null, 1, 60);
+
+        for (int done = 0; done < existing; done += PRELOAD_BATCH) {
+            List<Object[]> rows = new ArrayList<>(PRELOAD_BATCH);
+            for (int i = 0; i < PRELOAD_BATCH; i++)
+                rows.add(new Object[] { generator.orderNumber(), 1L, total, Timestamp.valueOf(LocalDateTime.now()) });
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            } catch (DuplicateKeyException e) {
+                // Rows ahead of the duplicate are already in; their retries only add a few extra orders
+                rows.forEach(this::insert);
+            }
+        }
+        collisions = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("Order number collisions (" + scheme + "): " + collisions);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int insert() {
+        return insert(new Object[] { generator.orderNumber(), 1L, total, Timestamp.valueOf(LocalDateTime.now()) });
+    }
+
+    private int insert(Object[] row) {
+        while (true) {
+            try {
+                return jdbcTemplate.update(INSERT_SQL, row);
+            } catch (DuplicateKeyException e) {
+                collisions++;
+                row[0] = generator.orderNumber();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.neurocart.benchmark;
+
+import com.neurocart.service.PricingEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price evaluation for a catalog chunk: {@link PricingEngine#priceMinor} on
+ * long paise against the BigDecimal/double calculation that used to run on
+ * every product read. Inputs cover the discount, scarcity and demand rules.
+ * <p>
+ * {@code mvn -Pbenchmark -DskipTests -Dbenchmark=PricingBenchmark test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PricingBenchmark {
+
+    @Param({ "10000" })
+    int products;
+
+    private long[] baseMinor;
+    private long[] discountBasisPoints;
+    private BigDecimal[] basePrice;
+    private BigDecimal[] discountPercentage;
+    private int[] stock;
+    private int[] demand;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        baseMinor = new long[products];
+        discountBasisPoints = new long[products];
+        basePrice = new BigDecimal[products];
+        discountPercentage = new BigDecimal[products];
+        stock = new int[products];
+        demand = new int[products];
+        for (int i = 0; i < products; i++) {
+            baseMinor[i] = random.nextLong(100, 50_000_000);
+            discountBasisPoints[i] = random.nextInt(4) == 0 ? random.nextLong(0, 5_000) : 0;
+            basePrice[i] = PricingEngine.fromMinor(baseMinor[i]);
+            discountPercentage[i] = PricingEngine.fromMinor(discountBasisPoints[i]);
+            stock[i] = random.nextInt(30);
+            demand[i] = random.nextInt(400);
+        }
+    }
+
+    @Benchmark
+    public void fixedPoint(Blackhole bh) {
+        for (int i = 0; i < products; i++)
+            bh.consume(PricingEngine.priceMinor(baseMinor[i], discountBasisPoints[i], stock[i], demand[i]));
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole bh) {
+        for (int i = 0; i < products; i++)
+            bh.consume(bigDecimalPrice(basePrice[i], discountPercentage[i], stock[i], demand[i]));
+    }
+
+    // The per-request calculation PricingEngine replaced
+    private static BigDecimal bigDecimalPrice(BigDecimal basePrice, BigDecimal discountPercentage, int stock,
+            int demand) {
+        BigDecimal price = basePrice;
+        if (discountPercentage != null && discountPercentage.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal discount = price.multiply(discountPercentage).divide(BigDecimal.valueOf(100));
+            price = price.subtract(discount);
+        }
+        if (stock < 10 && stock > 0) {
+            double surgeFactor = 1.0 + (0.15 * (1.0 - stock / 10.0));
+            price = price.multiply(BigDecimal.valueOf(surgeFactor)).setScale(2, RoundingMode.HALF_UP);
+        }
+        if (demand > 100) {
+            double demandFactor = Math.min(1.10, 1 + (demand - 100.0) / 2000.0);
+            price = price.multiply(BigDecimal.valueOf(demandFactor)).setScale(2, RoundingMode.HALF_UP);
+        }
+        return price.max(basePrice.multiply(BigDecimal.valueOf(0.5)));
+    }
+}
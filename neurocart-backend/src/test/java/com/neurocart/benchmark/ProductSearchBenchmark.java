@@ -0,0 +1,123 @@
+package com.neurocart.benchmark;
+
+import com.neurocart.NeurocartApplication;
+import com.neurocart.repository.ProductRepository;
+import com.neurocart.service.ProductFacetIndex;
+import com.neurocart.service.ProductSearchIndex;
+import com.neurocart.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword search over a synthetic catalog seeded into H2 (MySQL mode): the
+ * {@link ProductSearchIndex} path behind {@code GET /products?search=}
+ * against the {@code LOWER(...) LIKE %keyword%} query in
+ * {@link ProductRepository#searchProducts} it replaced. Both load the first
+ * page of 20 and count the hits. Word frequencies are skewed, so the common,
+ * rare and two-term queries see very different posting list sizes. LIKE
+ * matches {@code "w12 w7"} as one phrase, the index as two words that must
+ * both occur, so the two return different hit counts for that query; the
+ * cost of getting there is what is compared. H2 keeps the table in memory,
+ * so the scan pays CPU rather than I/O.
+ * <p>
+ * {@code mvn -Pbenchmark -DskipTests -Dbenchmark=ProductSearchBenchmark test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProductSearchBenchmark {
+
+    private static final int VOCABULARY = 5000;
+    private static final int SEED_BATCH = 10_000;
+    private static final String INSERT_SQL = "INSERT INTO products (name, description, base_price, current_price, "
+            + "stock_quantity, demand_count, sku, is_active, is_featured, average_rating, total_reviews, "
+            + "category_id, discount_percentage, tags, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, 10, 0, ?, 1, 0, 0, 0, ?, 0, ?, ?, ?)";
+
+    @Param({ "500000" })
+    int products;
+
+    @Param({ "w3", "w4200", "w12 w7" })
+    String query;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductService productService;
+    private final Pageable firstPage = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(NeurocartApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:searchbench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                                + "NON_KEYWORDS=VALUE,USER;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "neurocart.price-history.dir=target/benchmark-price-history")
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        productService = context.getBean(ProductService.class);
+        seed(context.getBean(JdbcTemplate.class));
+        // The indexes were built at startup, before the catalog existed
+        context.getBean(ProductSearchIndex.class).build();
+        context.getBean(ProductFacetIndex.class).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long index() {
+        return productService.getAllProducts(0, 20, null, null, query).getTotalElements();
+    }
+
+    @Benchmark
+    public long like() {
+        return productRepository.searchProducts(query, firstPage).getTotalElements();
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Long categoryId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM categories", Long.class);
+        BigDecimal price = new BigDecimal("499.00");
+        SplittableRandom random = new SplittableRandom(42);
+        for (int done = 0; done < products; done += SEED_BATCH) {
+            List<Object[]> rows = new ArrayList<>(SEED_BATCH);
+            for (int i = done; i < Math.min(done + SEED_BATCH, products); i++) {
+                Timestamp created = Timestamp.valueOf(LocalDateTime.now().minusSeconds(products - i));
+                rows.add(new Object[] { words(random, 3), words(random, 8), price, price, "BENCH-" + i, categoryId,
+                        words(random, 2), created, created });
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    // Cubing the uniform draw gives low word numbers most of the occurrences
+    private static String words(SplittableRandom random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            double r = random.nextDouble();
+            if (i > 0)
+                sb.append(' ');
+            sb.append('w').append((int) (VOCABULARY * r * r * r));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.neurocart.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CartStoreTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("99.00");
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:cartstore;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE cart (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "product_id BIGINT NOT NULL REFERENCES products (id), quantity INT NOT NULL, "
+                + "price_snapshot DECIMAL(10, 2), added_at TIMESTAMP, updated_at TIMESTAMP, "
+                + "UNIQUE (user_id, product_id))");
+        jdbcTemplate.update("INSERT INTO products (id) VALUES (1), (2), (3)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE cart");
+        jdbcTemplate.execute("DROP TABLE products");
+    }
+
+    @Test
+    void editsBetweenFlushesCoalesceIntoOneWritePerLine() {
+        CartStore store = store(30);
+        for (int qty = 1; qty <= 5; qty++)
+            set(store, 7, 1, qty);
+        set(store, 7, 2, 1);
+        store.remove(7, List.of(2L));
+
+        store.flush();
+        assertThat(store.stats()).containsEntry("upserts", 1L).containsEntry("deletes", 1L)
+                .containsEntry("dirtyCarts", 0);
+        assertThat(quantities(7)).containsExactly(5);
+
+        // Nothing changed since, so nothing is written
+        store.flush();
+        assertThat(store.stats()).containsEntry("upserts", 1L).containsEntry("deletes", 1L);
+    }
+
+    @Test
+    void failedFlushIsRetriedOnTheNextPass() {
+        CartStore store = store(30);
+        set(store, 7, 1, 2);
+        set(store, 8, 3, 1);
+
+        jdbcTemplate.execute("ALTER TABLE cart RENAME TO cart_offline");
+        store.flush();
+        assertThat(store.stats()).containsEntry("failedFlushes", 1L).containsEntry("dirtyCarts", 2)
+                .containsEntry("droppedLines", 0L);
+
+        jdbcTemplate.execute("ALTER TABLE cart_offline RENAME TO cart");
+        store.flush();
+        assertThat(store.stats()).containsEntry("dirtyCarts", 0).containsEntry("upserts", 2L);
+        assertThat(quantities(7)).containsExactly(2);
+        assertThat(quantities(8)).containsExactly(1);
+    }
+
+    @Test
+    void lineTheTableRejectsIsDroppedWithoutHoldingBackOthers() {
+        CartStore store = store(30);
+        set(store, 7, 1, 2);
+        set(store, 7, 2, 1);
+        set(store, 8, 3, 4);
+        // Product 2 is deleted before the flush, so its line violates the foreign key
+        jdbcTemplate.update("DELETE FROM products WHERE id = 2");
+
+        store.flush();
+        assertThat(store.stats()).containsEntry("droppedLines", 1L).containsEntry("upserts", 2L)
+                .containsEntry("dirtyCarts", 0);
+        assertThat(quantities(7)).containsExactly(2);
+        assertThat(quantities(8)).containsExactly(4);
+
+        store.flush();
+        assertThat(store.stats()).containsEntry("droppedLines", 1L).containsEntry("upserts", 2L);
+    }
+
+    @Test
+    void idleCleanCartsAreEvictedAndReloadFromTheTable() throws InterruptedException {
+        CartStore store = store(0);
+        set(store, 7, 1, 2);
+        set(store, 7, 3, 1);
+        Thread.sleep(5);
+
+        // A dirty cart stays resident until it has been written
+        store.evictIdle();
+        assertThat(store.stats()).containsEntry("residentCarts", 1).containsEntry("evictions", 0L);
+        store.flush();
+        Thread.sleep(5);
+        store.evictIdle();
+        assertThat(store.stats()).containsEntry("residentCarts", 0).containsEntry("evictions", 1L);
+
+        assertThat(store.lines(7)).extracting(CartStore.Line::productId, CartStore.Line::quantity)
+                .containsExactly(tuple(1L, 2), tuple(3L, 1));
+        // A fresh node starts from the table too
+        assertThat(store(30).lines(7)).extracting(CartStore.Line::productId).containsExactly(1L, 3L);
+    }
+
+    private CartStore store(long idleEvictionMinutes) {
+        CartStore store = new CartStore(jdbcTemplate);
+        ReflectionTestUtils.setField(store, "idleEvictionMinutes", idleEvictionMinutes);
+        return store;
+    }
+
+    private void set(CartStore store, long userId, long productId, int quantity) {
+        store.update(userId, productId, line -> new CartStore.Line(productId, quantity, PRICE,
+                line != null ? line.addedAt() : LocalDateTime.now().plusNanos(productId * 1000)));
+    }
+
+    private List<Integer> quantities(long userId) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM cart WHERE user_id = ? ORDER BY product_id",
+                Integer.class, userId);
+    }
+}
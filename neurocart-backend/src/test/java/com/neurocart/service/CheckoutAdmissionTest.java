@@ -0,0 +1,114 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neurocart.dto.OrderDTO;
+import com.neurocart.entity.User;
+import com.neurocart.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CheckoutAdmissionTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    void fullQueueIsTurnedAwayAtOnceAndWaitersRunInTurn() throws Exception {
+        CheckoutAdmission admission = new CheckoutAdmission(true, 2, 2, Duration.ofSeconds(10), 200);
+        List<Future<String>> admitted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            admitted.add(pool.submit(() -> admission.call(this::blockingCheckout)));
+            awaitStats(admission, Math.min(i + 1, 2), Math.max(0, i - 1));
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> admission.call(() -> "late")).isInstanceOf(TooManyRequestsException.class)
+                .satisfies(e -> assertThat(((TooManyRequestsException) e).getRetryAfterSeconds()).isPositive());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+        release.countDown();
+        for (Future<String> checkout : admitted)
+            assertThat(checkout.get(10, TimeUnit.SECONDS)).isEqualTo("placed");
+        assertThat(peak.get()).isEqualTo(2);
+        assertThat(admission.stats()).containsEntry("admitted", 4L).containsEntry("rejectedQueueFull", 1L)
+                .containsEntry("queued", 0).containsEntry("running", 0);
+    }
+
+    @Test
+    void waiterGivesUpAfterMaxWait() throws Exception {
+        CheckoutAdmission admission = new CheckoutAdmission(true, 1, 1, Duration.ofMillis(100), 200);
+        pool.submit(() -> admission.call(this::blockingCheckout));
+        awaitStats(admission, 1, 0);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> admission.call(() -> "late")).isInstanceOf(TooManyRequestsException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(90L, 5000L);
+        assertThat(admission.stats()).containsEntry("rejectedTimeout", 1L).containsEntry("queued", 0);
+    }
+
+    @Test
+    void queueThatWouldStarveRequestThreadsFailsAtStartup() {
+        assertThatThrownBy(() -> new CheckoutAdmission(true, 6, 200, Duration.ofSeconds(2), 200))
+                .isInstanceOf(IllegalStateException.class);
+        new CheckoutAdmission(true, 6, 94, Duration.ofMillis(300), 200);
+        new CheckoutAdmission(false, 6, 200, Duration.ofSeconds(2), 200);
+    }
+
+    @Test
+    void rejectedIdempotentCheckoutNeverReachesTheKeyTable() throws Exception {
+        CheckoutAdmission admission = new CheckoutAdmission(true, 1, 0, Duration.ofMillis(100), 200);
+        pool.submit(() -> admission.call(this::blockingCheckout));
+        awaitStats(admission, 1, 0);
+
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        OrderService orderService = Mockito.mock(OrderService.class);
+        IdempotentCheckout checkout = new IdempotentCheckout(orderService, admission, jdbcTemplate,
+                new ObjectMapper(), Duration.ofHours(24), 1000, Duration.ofSeconds(30));
+        User user = User.builder().id(1L).build();
+
+        assertThatThrownBy(() -> checkout.placeOrder(user, new OrderDTO.PlaceOrderRequest(), "key-1"))
+                .isInstanceOf(TooManyRequestsException.class);
+        Mockito.verifyNoInteractions(jdbcTemplate, orderService);
+    }
+
+    private String blockingCheckout() {
+        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.decrementAndGet();
+        }
+        return "placed";
+    }
+
+    private static void awaitStats(CheckoutAdmission admission, int running, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!(admission.stats().get("running").equals(running) && admission.stats().get("queued").equals(queued))) {
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("Admission never reached " + running + " running, " + queued + " queued: "
+                        + admission.stats());
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.neurocart.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoPurchaseIndexTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTables() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:copurchase;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS order_items");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS orders");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, status VARCHAR(30) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "order_id BIGINT NOT NULL, product_id BIGINT NOT NULL)");
+    }
+
+    @Test
+    void repeatedPassesCountEachOrderOnce() {
+        order(1, 10, 20);
+        order(2, 10, 20, 30);
+        CoPurchaseIndex index = new CoPurchaseIndex(jdbcTemplate);
+
+        index.build();
+        index.tail();
+        index.tail();
+
+        assertThat(countOf(index, 10, 20)).isEqualTo(2);
+        assertThat(countOf(index, 20, 30)).isEqualTo(1);
+        assertThat(index.stats()).containsEntry("ordersMined", 2L).containsEntry("highWaterMark", 2L);
+
+        order(3, 10, 20);
+        index.tail();
+        assertThat(countOf(index, 10, 20)).isEqualTo(3);
+    }
+
+    @Test
+    void restartedNodeRebuildsWithoutDoubleCounting() {
+        order(1, 10, 20);
+        order(2, 10, 20);
+        CoPurchaseIndex before = new CoPurchaseIndex(jdbcTemplate);
+        before.build();
+
+        CoPurchaseIndex restarted = new CoPurchaseIndex(jdbcTemplate);
+        restarted.tail();
+        restarted.build();
+
+        assertThat(countOf(restarted, 10, 20)).isEqualTo(countOf(before, 10, 20)).isEqualTo(2);
+    }
+
+    @Test
+    void everyNodeSeesOrdersPlacedAnywhere() {
+        CoPurchaseIndex nodeA = new CoPurchaseIndex(jdbcTemplate);
+        CoPurchaseIndex nodeB = new CoPurchaseIndex(jdbcTemplate);
+        nodeA.build();
+        nodeB.build();
+
+        order(1, 10, 20);
+        order(2, 10, 20);
+        nodeA.tail();
+        nodeB.tail();
+
+        assertThat(countOf(nodeA, 10, 20)).isEqualTo(2);
+        assertThat(countOf(nodeB, 10, 20)).isEqualTo(2);
+    }
+
+    @Test
+    void orderCommittedBehindTheHighWaterMarkIsPickedUpOnce() {
+        order(1, 10, 20);
+        order(3, 10, 20);
+        CoPurchaseIndex index = new CoPurchaseIndex(jdbcTemplate);
+        index.build();
+        assertThat(countOf(index, 10, 20)).isEqualTo(2);
+        assertThat(index.stats()).containsEntry("pendingGaps", 1);
+
+        // Order 2 took its id first but committed last
+        order(2, 10, 20);
+        index.tail();
+        index.tail();
+
+        assertThat(countOf(index, 10, 20)).isEqualTo(3);
+        assertThat(index.stats()).containsEntry("pendingGaps", 0);
+    }
+
+    @Test
+    void cancelledOrdersAreNotMined() {
+        order(1, 10, 20);
+        jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = 1");
+        CoPurchaseIndex index = new CoPurchaseIndex(jdbcTemplate);
+        index.build();
+
+        assertThat(countOf(index, 10, 20)).isZero();
+        assertThat(index.stats()).containsEntry("pendingGaps", 0);
+    }
+
+    private void order(long id, long... productIds) {
+        jdbcTemplate.update("INSERT INTO orders (id, status) VALUES (?, 'ORDER_PLACED')", id);
+        for (long productId : productIds)
+            jdbcTemplate.update("INSERT INTO order_items (order_id, product_id) VALUES (?, ?)", id, productId);
+    }
+
+    private static int countOf(CoPurchaseIndex index, long productId, long companionId) {
+        CoPurchaseIndex.Companions companions = index.companionsOf(productId);
+        for (int i = 0; i < companions.productIds().length; i++) {
+            if (companions.productIds()[i] == companionId)
+                return companions.counts()[i];
+        }
+        return 0;
+    }
+}
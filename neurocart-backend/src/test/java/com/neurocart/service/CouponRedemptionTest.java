@@ -0,0 +1,95 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.entity.Coupon;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CouponRedemptionTest extends IntegrationTest {
+
+    private static final int BUYERS = 24;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Test
+    void limitedCouponIsRedeemedOnceUnderConcurrentCheckouts() throws Exception {
+        Coupon coupon = coupon("ONCE", 1);
+        Product product = product(1000, "999.00");
+        List<User> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            User buyer = customer();
+            addToCart(buyer, product, 1);
+            buyers.add(buyer);
+        }
+
+        AtomicInteger redeemed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (User buyer : buyers) {
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    checkout(buyer, coupon.getCode());
+                    redeemed.incrementAndGet();
+                } catch (BadRequestException e) {
+                    assertThat(e.getMessage()).contains("Coupon usage limit reached");
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results)
+            result.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertThat(redeemed).hasValue(1);
+        assertThat(rejected).hasValue(BUYERS - 1);
+        assertThat(couponRepository.findByCode(coupon.getCode()).orElseThrow().getUsedCount()).isEqualTo(1);
+        assertThat(stockOf(product.getId())).isEqualTo(999);
+    }
+
+    @Test
+    void rejectedRedemptionRollsBackTheOrder() {
+        Coupon coupon = coupon("SPENT", 1);
+        Product product = product(10, "999.00");
+        User first = customer();
+        User second = customer();
+        addToCart(first, product, 2);
+        addToCart(second, product, 3);
+
+        checkout(first, coupon.getCode());
+        assertThatThrownBy(() -> checkout(second, coupon.getCode()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("usage limit");
+
+        assertThat(stockOf(product.getId())).isEqualTo(8);
+        assertThat(cartStore.lines(second.getId())).hasSize(1);
+    }
+
+    private Coupon coupon(String prefix, int usageLimit) {
+        return couponRepository.save(Coupon.builder()
+                .code(prefix + ThreadLocalRandom.current().nextInt(1_000_000))
+                .description("Test coupon")
+                .discountType(Coupon.DiscountType.FLAT_AMOUNT)
+                .discountValue(new BigDecimal("10.00"))
+                .usageLimit(usageLimit)
+                .build());
+    }
+}
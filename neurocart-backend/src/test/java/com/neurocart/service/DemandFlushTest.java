@@ -0,0 +1,97 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DemandFlushTest extends IntegrationTest {
+
+    @Autowired
+    private DemandCounter demandCounter;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Test
+    void flushedDemandReordersIndexesWithoutReloadingProducts() {
+        String prefix = "demandflush" + System.nanoTime();
+        Product first = indexed(product(5, "10.00"), prefix + " first");
+        Product second = indexed(product(5, "10.00"), prefix + " second");
+        RoaringBitmap both = RoaringBitmap.bitmapOf(Math.toIntExact(first.getId()),
+                Math.toIntExact(second.getId()));
+
+        view(first, 5);
+        view(second, 2);
+        flush(first, second);
+        eventually(() -> {
+            assertThat(facetIndex.page(both, "demandCount", 0, 2)).containsExactly(first.getId(), second.getId());
+            assertThat(weights(prefix)).containsEntry(first.getId(), 6L).containsEntry(second.getId(), 3L);
+        });
+
+        view(second, 10);
+        flush(first, second);
+        eventually(() -> {
+            assertThat(facetIndex.page(both, "demandCount", 0, 2)).containsExactly(second.getId(), first.getId());
+            assertThat(weights(prefix)).containsEntry(first.getId(), 6L).containsEntry(second.getId(), 13L);
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT demand_count FROM products WHERE id = ?", Integer.class,
+                second.getId())).isEqualTo(12);
+    }
+
+    private Product indexed(Product product, String name) {
+        product.setName(name);
+        Product saved = productRepository.save(product);
+        facetIndex.index(saved);
+        suggestIndex.index(saved);
+        return saved;
+    }
+
+    private void view(Product product, int times) {
+        for (int i = 0; i < times; i++)
+            demandCounter.increment(product.getId());
+    }
+
+    // A scheduled flush may already hold the lock; keep asking until both products are taken
+    private void flush(Product... products) {
+        while (true) {
+            demandCounter.flush();
+            boolean drained = true;
+            for (Product p : products)
+                drained &= demandCounter.pending(p.getId()) == 0;
+            if (drained)
+                return;
+            Thread.onSpinWait();
+        }
+    }
+
+    // The flush that took the deltas may still be publishing them
+    private static void eventually(Runnable assertion) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.currentTimeMillis() > deadline)
+                    throw e;
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private Map<Long, Long> weights(String prefix) {
+        return suggestIndex.suggest(prefix, 10).stream()
+                .collect(Collectors.toMap(ProductDTO.Suggestion::getProductId, ProductDTO.Suggestion::getWeight));
+    }
+}
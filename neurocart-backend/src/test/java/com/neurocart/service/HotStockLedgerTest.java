@@ -0,0 +1,224 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.exception.ServiceUnavailableException;
+import com.neurocart.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotStockLedgerTest extends IntegrationTest {
+
+    @Autowired
+    private HotStockLedger hotStockLedger;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void reservationsRollbacksAndRestocksAddUpOnTheRow() throws Exception {
+        int stock = 500;
+        int restocks = 5;
+        int restockUnits = 50;
+        Product product = product(stock, "99.00");
+        hotStockLedger.enable(product.getId(), 8);
+
+        AtomicInteger committedUnits = new AtomicInteger();
+        AtomicInteger rolledBack = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    int quantity = 1 + (thread + i) % 3;
+                    boolean rollback = i % 3 == 0;
+                    HotStockLedger.Result result = transactionTemplate.execute(status -> {
+                        HotStockLedger.Result r = hotStockLedger.reserve(product.getId(), quantity);
+                        if (rollback)
+                            status.setRollbackOnly();
+                        return r;
+                    });
+                    if (result == HotStockLedger.Result.SOLD_OUT) {
+                        soldOut.incrementAndGet();
+                    } else if (rollback) {
+                        rolledBack.incrementAndGet();
+                    } else {
+                        committedUnits.addAndGet(quantity);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Vendor restocks and extra reconcile passes run alongside the checkouts
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread reconciler = new Thread(() -> {
+            while (running.get())
+                hotStockLedger.reconcile();
+        });
+        reconciler.start();
+        start.countDown();
+        for (int i = 0; i < restocks; i++) {
+            restock(product.getId(), restockUnits);
+            Thread.sleep(20);
+        }
+        for (Future<?> result : results)
+            result.get(60, TimeUnit.SECONDS);
+        running.set(false);
+        reconciler.join();
+        pool.shutdown();
+
+        hotStockLedger.disable(product.getId());
+        // A restock's delta also covers sales flushed while the vendor form was loaded
+        long restocked = jdbcTemplate.queryForObject("SELECT restocked_units FROM products WHERE id = ?",
+                Long.class, product.getId());
+        assertThat(restocked).isGreaterThanOrEqualTo(restocks * restockUnits);
+        assertThat(rolledBack.get()).isPositive();
+        assertThat((long) committedUnits.get()).isLessThanOrEqualTo(stock + restocked);
+        assertThat(stockOf(product.getId())).isEqualTo(stock + restocked - committedUnits.get());
+    }
+
+    @Test
+    void staleStockRiseIsNotReissued() {
+        Product product = product(10, "99.00");
+        hotStockLedger.enable(product.getId(), 4);
+        assertThat(reserveCommitted(product.getId(), 10)).isEqualTo(HotStockLedger.Result.RESERVED);
+        hotStockLedger.reconcile();
+        assertThat(stockOf(product.getId())).isZero();
+
+        // A write that did not go through the restock path puts the sold units back on the row
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 10 WHERE id = ?", product.getId());
+        hotStockLedger.reconcile();
+        assertThat(reserveCommitted(product.getId(), 1)).isEqualTo(HotStockLedger.Result.SOLD_OUT);
+
+        // An explicit restock is picked up
+        restock(product.getId(), 5);
+        hotStockLedger.reconcile();
+        assertThat(reserveCommitted(product.getId(), 5)).isEqualTo(HotStockLedger.Result.RESERVED);
+        assertThat(reserveCommitted(product.getId(), 1)).isEqualTo(HotStockLedger.Result.SOLD_OUT);
+        hotStockLedger.disable(product.getId());
+    }
+
+    @Test
+    void unitsRolledBackAfterSwitchOffReturnToTheRow() {
+        Product product = product(10, "99.00");
+        hotStockLedger.enable(product.getId(), 4);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(hotStockLedger.reserve(product.getId(), 3)).isEqualTo(HotStockLedger.Result.RESERVED);
+            // The ledger's final flush counts the open reservation as sold
+            CompletableFuture.runAsync(() -> hotStockLedger.disable(product.getId())).join();
+            assertThat(stockOf(product.getId())).isEqualTo(7);
+            status.setRollbackOnly();
+        });
+
+        hotStockLedger.reconcile();
+        assertThat(stockOf(product.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void otherNodesDoNotSellAHotProductFromTheRow() {
+        Product product = product(10, "99.00");
+        HotStockLedger otherNode = otherNode();
+        otherNode.enable(product.getId(), 4);
+
+        // This context's ledger does not hold the product, so its checkout goes to the row and is turned away
+        User user = customer();
+        addToCart(user, product, 2);
+        assertThatThrownBy(() -> checkout(user, null)).isInstanceOf(ServiceUnavailableException.class);
+        assertThatThrownBy(() -> hotStockLedger.enable(product.getId(), 4))
+                .isInstanceOf(BadRequestException.class);
+
+        assertThat(reserveCommitted(otherNode, product.getId(), 10))
+                .isEqualTo(HotStockLedger.Result.RESERVED);
+        otherNode.reconcile();
+        assertThat(stockOf(product.getId())).isZero();
+
+        otherNode.disable(product.getId());
+        assertThatThrownBy(() -> checkout(user, null)).isInstanceOf(BadRequestException.class);
+        restock(product.getId(), 2);
+        checkout(user, null);
+        assertThat(stockOf(product.getId())).isZero();
+    }
+
+    @Test
+    void ledgerWhoseLeaseLapsedFlushesAndStepsBack() {
+        Product product = product(10, "99.00");
+        HotStockLedger otherNode = otherNode();
+        otherNode.enable(product.getId(), 4);
+        assertThat(reserveCommitted(otherNode, product.getId(), 3))
+                .isEqualTo(HotStockLedger.Result.RESERVED);
+
+        // The other node stalled past its lease
+        jdbcTemplate.update("UPDATE products SET hot_stock_until = TIMESTAMPADD(SECOND, -1, CURRENT_TIMESTAMP) "
+                + "WHERE id = ?", product.getId());
+        otherNode.reconcile();
+        assertThat(stockOf(product.getId())).isEqualTo(7);
+        assertThat(reserveCommitted(otherNode, product.getId(), 1))
+                .isEqualTo(HotStockLedger.Result.NOT_HOT);
+        assertThat(jdbcTemplate.queryForObject("SELECT hot_stock_owner FROM products WHERE id = ?", String.class,
+                product.getId())).isNull();
+
+        User user = customer();
+        addToCart(user, product, 7);
+        checkout(user, null);
+        assertThat(stockOf(product.getId())).isZero();
+    }
+
+    /** A second ledger over the same database, standing in for another node. */
+    private HotStockLedger otherNode() {
+        HotStockLedger ledger = new HotStockLedger(jdbcTemplate, productRepository, eventPublisher);
+        ReflectionTestUtils.setField(ledger, "defaultShards", 4);
+        ReflectionTestUtils.setField(ledger, "leaseSeconds", 30L);
+        return ledger;
+    }
+
+    private HotStockLedger.Result reserveCommitted(long productId, int quantity) {
+        return reserveCommitted(hotStockLedger, productId, quantity);
+    }
+
+    private HotStockLedger.Result reserveCommitted(HotStockLedger ledger, long productId, int quantity) {
+        return transactionTemplate.execute(status -> ledger.reserve(productId, quantity));
+    }
+
+    private void restock(long productId, int units) {
+        Product current = productRepository.findById(productId).orElseThrow();
+        ProductDTO.ProductRequest request = ProductDTO.ProductRequest.builder()
+                .name(current.getName())
+                .description(current.getDescription())
+                .basePrice(current.getBasePrice())
+                .sku(current.getSku())
+                .stockQuantity(current.getStockQuantity() + units)
+                .categoryId(categoryRepository.findAll().get(0).getId())
+                .build();
+        productService.updateProduct(productId, request, null);
+    }
+}
@@ -0,0 +1,152 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neurocart.IntegrationTest;
+import com.neurocart.dto.OrderDTO;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.exception.BadRequestException;
+import com.neurocart.exception.UnprocessableEntityException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotentCheckoutTest extends IntegrationTest {
+
+    private static final int DUPLICATES = 16;
+
+    @Autowired
+    private IdempotentCheckout idempotentCheckout;
+
+    @Autowired
+    private CheckoutAdmission checkoutAdmission;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void duplicatesOnOneNodeShareTheFirstOrder() throws Exception {
+        assertOneOrder(List.of(idempotentCheckout));
+    }
+
+    @Test
+    void duplicatesAcrossNodesShareTheFirstOrder() throws Exception {
+        // A second instance has its own in-memory map, like another node; only the table is shared
+        IdempotentCheckout otherNode = new IdempotentCheckout(orderService, checkoutAdmission, jdbcTemplate,
+                objectMapper, Duration.ofHours(24), 1000, Duration.ofSeconds(30));
+        assertOneOrder(List.of(idempotentCheckout, otherNode));
+    }
+
+    @Test
+    void nodeThatMissedTheKeyReplaysItWhenTheCartIsAlreadyGone() {
+        Product product = product(10, "250.00");
+        User user = customer();
+        addToCart(user, product, 2);
+        String key = UUID.randomUUID().toString();
+        IdempotentCheckout.Outcome first = idempotentCheckout.placeOrder(user, request(), key);
+
+        // The other node looked the key up just before the first order committed and emptied the cart
+        JdbcTemplate lateLookup = Mockito.spy(jdbcTemplate);
+        Mockito.doReturn(List.of()).doCallRealMethod().when(lateLookup)
+                .query(ArgumentMatchers.startsWith("SELECT request_hash"), ArgumentMatchers.any(RowMapper.class),
+                        ArgumentMatchers.any(Object[].class));
+        IdempotentCheckout otherNode = new IdempotentCheckout(orderService, checkoutAdmission, lateLookup,
+                objectMapper, Duration.ofHours(24), 1000, Duration.ofSeconds(30));
+
+        IdempotentCheckout.Outcome second = otherNode.placeOrder(user, request(), key);
+        assertThat(second.replayed()).isTrue();
+        assertThat(second.order().getId()).isEqualTo(first.order().getId());
+        assertThat(stockOf(product.getId())).isEqualTo(8);
+    }
+
+    @Test
+    void keyReusedWithADifferentBodyIsRejected() {
+        Product product = product(10, "250.00");
+        User user = customer();
+        addToCart(user, product, 2);
+        String key = UUID.randomUUID().toString();
+        IdempotentCheckout.Outcome first = idempotentCheckout.placeOrder(user, request(), key);
+
+        OrderDTO.PlaceOrderRequest elsewhere = request();
+        elsewhere.setShippingAddress("2 Other Street");
+        IdempotentCheckout otherNode = new IdempotentCheckout(orderService, checkoutAdmission, jdbcTemplate,
+                objectMapper, Duration.ofHours(24), 1000, Duration.ofSeconds(30));
+        // Caught from the in-memory entry on this node and from the table on the other
+        assertThatThrownBy(() -> idempotentCheckout.placeOrder(user, elsewhere, key))
+                .isInstanceOf(UnprocessableEntityException.class);
+        assertThatThrownBy(() -> otherNode.placeOrder(user, elsewhere, key))
+                .isInstanceOf(UnprocessableEntityException.class);
+
+        IdempotentCheckout.Outcome same = otherNode.placeOrder(user, request(), key);
+        assertThat(same.replayed()).isTrue();
+        assertThat(same.order().getId()).isEqualTo(first.order().getId());
+        assertThat(stockOf(product.getId())).isEqualTo(8);
+    }
+
+    @Test
+    void failedFirstAttemptIsSharedAndLeavesTheKeyFree() {
+        Product product = product(1, "250.00");
+        User user = customer();
+        addToCart(user, product, 2);
+        String key = UUID.randomUUID().toString();
+
+        assertThatThrownBy(() -> idempotentCheckout.placeOrder(user, request(), key))
+                .isInstanceOf(BadRequestException.class);
+
+        addToCart(user, product, 1);
+        IdempotentCheckout.Outcome retry = idempotentCheckout.placeOrder(user, request(), key);
+        assertThat(retry.replayed()).isFalse();
+        assertThat(stockOf(product.getId())).isZero();
+    }
+
+    private void assertOneOrder(List<IdempotentCheckout> nodes) throws Exception {
+        Product product = product(10, "250.00");
+        User user = customer();
+        addToCart(user, product, 2);
+        String key = UUID.randomUUID().toString();
+
+        ExecutorService pool = Executors.newFixedThreadPool(DUPLICATES);
+        CyclicBarrier start = new CyclicBarrier(DUPLICATES);
+        List<Future<IdempotentCheckout.Outcome>> outcomes = new ArrayList<>();
+        for (int i = 0; i < DUPLICATES; i++) {
+            IdempotentCheckout node = nodes.get(i % nodes.size());
+            outcomes.add(pool.submit(() -> {
+                start.await();
+                return node.placeOrder(user, request(), key);
+            }));
+        }
+        List<IdempotentCheckout.Outcome> results = new ArrayList<>();
+        for (Future<IdempotentCheckout.Outcome> outcome : outcomes)
+            results.add(outcome.get(1, TimeUnit.MINUTES));
+        pool.shutdown();
+
+        assertThat(results).filteredOn(outcome -> !outcome.replayed()).hasSize(1);
+        assertThat(results).extracting(outcome -> outcome.order().getId()).containsOnly(results.get(0).order()
+                .getId());
+        assertThat(results).extracting(outcome -> outcome.order().getOrderNumber()).containsOnly(results.get(0)
+                .order().getOrderNumber());
+        assertThat(stockOf(product.getId())).isEqualTo(8);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class,
+                user.getId())).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys WHERE user_id = ?",
+                Integer.class, user.getId())).isEqualTo(1);
+    }
+
+    private static OrderDTO.PlaceOrderRequest request() {
+        OrderDTO.PlaceOrderRequest request = new OrderDTO.PlaceOrderRequest();
+        request.setShippingAddress("1 Test Street");
+        return request;
+    }
+}
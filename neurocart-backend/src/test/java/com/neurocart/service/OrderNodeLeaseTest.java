@@ -0,0 +1,120 @@
+package com.neurocart.service;
+
+import com.neurocart.util.SnowflakeIdGenerator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderNodeLeaseTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:nodelease;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE order_node_leases (node_id INT PRIMARY KEY, "
+                + "owner VARCHAR(100) NOT NULL, expires_at TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE order_node_leases");
+    }
+
+    @Test
+    void nodesStartingTogetherLeaseDistinctIds() throws Exception {
+        int nodes = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(nodes);
+        CyclicBarrier start = new CyclicBarrier(nodes);
+        List<Future<Long>> ids = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            ids.add(pool.submit(() -> {
+                SnowflakeOrderNumberGenerator generator = generator(60);
+                start.await();
+                generator.acquire();
+                return generator.nodeId();
+            }));
+        }
+        Set<Long> distinct = ConcurrentHashMap.newKeySet();
+        for (Future<Long> id : ids)
+            distinct.add(id.get(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertThat(distinct).hasSize(nodes);
+        assertThat(jdbcTemplate.queryForList("SELECT node_id FROM order_node_leases", Long.class))
+                .containsExactlyInAnyOrderElementsOf(distinct);
+    }
+
+    @Test
+    void nodeWhoseIdWasTakenOverLeasesAnotherOne() {
+        SnowflakeOrderNumberGenerator first = generator(60);
+        first.acquire();
+        assertThat(first.nodeId()).isZero();
+
+        // The first node stalled past its lease and a new node took the id
+        jdbcTemplate.update("UPDATE order_node_leases "
+                + "SET expires_at = TIMESTAMPADD(SECOND, -1, CURRENT_TIMESTAMP)");
+        SnowflakeOrderNumberGenerator second = generator(60);
+        second.acquire();
+        assertThat(second.nodeId()).isZero();
+
+        first.renew();
+        assertThat(first.nodeId()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredLocalDeadlineRenewsBeforeIssuing() throws InterruptedException {
+        SnowflakeOrderNumberGenerator generator = generator(1);
+        generator.acquire();
+        Thread.sleep(1100);
+
+        assertThat(generator.orderNumber()).startsWith("NC-");
+        assertThat(generator.nodeId()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_node_leases "
+                + "WHERE expires_at > CURRENT_TIMESTAMP", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void startupFailsWhenEveryIdIsLeased() {
+        jdbcTemplate.batchUpdate("INSERT INTO order_node_leases (node_id, owner, expires_at) "
+                + "VALUES (?, 'other', TIMESTAMPADD(SECOND, 60, CURRENT_TIMESTAMP))",
+                IntStream.rangeClosed(0, (int) SnowflakeIdGenerator.MAX_NODE_ID)
+                        .mapToObj(id -> new Object[] { id }).collect(Collectors.toList()));
+
+        assertThatThrownBy(() -> generator(60).acquire()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void releasedIdIsReusedAndPinnedIdsSkipTheTable() {
+        SnowflakeOrderNumberGenerator first = generator(60);
+        first.acquire();
+        first.release();
+        SnowflakeOrderNumberGenerator second = generator(60);
+        second.acquire();
+        assertThat(second.nodeId()).isZero();
+
+        SnowflakeOrderNumberGenerator pinned = new SnowflakeOrderNumberGenerator(jdbcTemplate, 512, 60);
+        pinned.acquire();
+        assertThat(pinned.nodeId()).isEqualTo(512);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_node_leases", Integer.class))
+                .isEqualTo(1);
+    }
+
+    private SnowflakeOrderNumberGenerator generator(long leaseSeconds) {
+        return new SnowflakeOrderNumberGenerator(jdbcTemplate, -1, leaseSeconds);
+    }
+}
@@ -0,0 +1,152 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RecordApplicationEvents
+@Slf4j
+class OrderStockConcurrencyTest extends IntegrationTest {
+
+    private static final int BUYERS = 2000;
+    private static final int THREADS = 32;
+    private static final int STOCK = 1500;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void parallelCheckoutsOnOneProductNeverOversell() throws Exception {
+        Product product = product(STOCK, "499.00");
+        List<User> buyers = new ArrayList<>(BUYERS);
+        int[] quantities = new int[BUYERS];
+        for (int i = 0; i < BUYERS; i++) {
+            User buyer = customer();
+            quantities[i] = 1 + i % 3;
+            addToCart(buyer, product, quantities[i]);
+            buyers.add(buyer);
+        }
+
+        // Reviews rewrite the product row while checkouts deduct from it
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread reviewer = new Thread(() -> {
+            while (running.get()) {
+                ReviewService.ReviewRequest review = new ReviewService.ReviewRequest();
+                review.setRating(4);
+                reviewService.addReview(customer(), product.getId(), review);
+            }
+        });
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger unitsSold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>(BUYERS);
+        for (int i = 0; i < BUYERS; i++) {
+            User buyer = buyers.get(i);
+            int quantity = quantities[i];
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    checkout(buyer, null);
+                    placed.incrementAndGet();
+                    unitsSold.addAndGet(quantity);
+                } catch (BadRequestException e) {
+                    assertThat(e.getMessage()).startsWith("Insufficient stock");
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        reviewer.start();
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results)
+            result.get(5, TimeUnit.MINUTES);
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began));
+        running.set(false);
+        reviewer.join();
+        pool.shutdown();
+
+        int remaining = stockOf(product.getId());
+        Integer ordered = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?", Integer.class,
+                product.getId());
+        log.info("Checkout storm: {} orders placed, {} rejected in {} ms ({} orders/s over {} threads)",
+                placed.get(), rejected.get(), elapsedMs, BUYERS * 1000L / elapsedMs, THREADS);
+
+        assertThat(placed.get() + rejected.get()).isEqualTo(BUYERS);
+        assertThat(remaining).isBetween(0, 2);
+        assertThat(ordered).isEqualTo(unitsSold.get()).isEqualTo(STOCK - remaining);
+    }
+
+    @Test
+    void staleProductSaveDoesNotPutSoldUnitsBack() throws Exception {
+        Product product = product(10, "499.00");
+        User buyer = customer();
+        addToCart(buyer, product, 3);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product stale = productRepository.findById(product.getId()).orElseThrow();
+            assertThat(stale.getStockQuantity()).isEqualTo(10);
+            // A checkout commits while this transaction still holds the old row image
+            CompletableFuture.runAsync(() -> checkout(buyer, null)).join();
+            stale.setAverageRating(4.5);
+            productRepository.save(stale);
+        });
+
+        assertThat(stockOf(product.getId())).isEqualTo(7);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getAverageRating()).isEqualTo(4.5);
+    }
+
+    @Test
+    void checkoutAnnouncesOnlyTheNewStock() {
+        Product product = product(2, "499.00");
+        productFacetIndex.index(product);
+        User buyer = customer();
+        addToCart(buyer, product, 2);
+        events.clear();
+
+        checkout(buyer, null);
+
+        assertThat(events.stream(ProductChangedEvent.class)).isEmpty();
+        assertThat(events.stream(StockChangedEvent.class)).singleElement().satisfies(event -> {
+            assertThat(event.productIds()).containsExactly(product.getId());
+            assertThat(event.stock()).containsExactly(0);
+        });
+        RoaringBitmap only = RoaringBitmap.bitmapOf(Math.toIntExact(product.getId()));
+        assertThat(productFacetIndex.query(stockQuery(true), only).hits().isEmpty()).isTrue();
+        assertThat(productFacetIndex.query(stockQuery(false), only).hits().contains(only)).isTrue();
+    }
+
+    private static ProductFacetIndex.Query stockQuery(boolean inStock) {
+        return new ProductFacetIndex.Query(null, null, null, null, inStock, false);
+    }
+}
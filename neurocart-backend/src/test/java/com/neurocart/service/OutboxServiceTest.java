@@ -0,0 +1,206 @@
+package com.neurocart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neurocart.IntegrationTest;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.repository.OutboxEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxServiceTest extends IntegrationTest {
+
+    private static final AtomicInteger HANDLERS = new AtomicInteger();
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    record Step(long aggregateId, int seq) {
+    }
+
+    @Test
+    void placedOrderIsAddedToEachVendorsSalesOnce() throws Exception {
+        List<Long> vendors = jdbcTemplate.queryForList("SELECT id FROM vendors ORDER BY id LIMIT 2", Long.class);
+        Product first = product(10, "100.00");
+        Product second = product(10, "30.00");
+        jdbcTemplate.update("UPDATE products SET vendor_id = ? WHERE id = ?", vendors.get(0), first.getId());
+        jdbcTemplate.update("UPDATE products SET vendor_id = ? WHERE id = ?", vendors.get(1), second.getId());
+        double before0 = salesOf(vendors.get(0));
+        double before1 = salesOf(vendors.get(1));
+
+        User user = customer();
+        addToCart(user, first, 2);
+        addToCart(user, second, 3);
+        long orderId = checkout(user, null).getId();
+
+        // The scheduled dispatcher delivers it; another pass finds nothing left to do
+        awaitDone("vendor-sales", orderId);
+        outboxService.dispatch();
+        assertThat(salesOf(vendors.get(0))).isEqualTo(before0 + 200.0);
+        assertThat(salesOf(vendors.get(1))).isEqualTo(before1 + 90.0);
+    }
+
+    @Test
+    void failedRowIsRetriedAndHoldsBackLaterRowsOfItsAggregate() {
+        Recorder recorder = new Recorder(Map.of(1, 1));
+        OutboxService outbox = outbox(recorder, 10);
+        enqueue(outbox, new Step(7, 1));
+        enqueue(outbox, new Step(7, 2));
+        enqueue(outbox, new Step(8, 3));
+
+        outbox.dispatch();
+        assertThat(recorder.delivered).containsExactly(3);
+        // Step 1 is backing off; step 2 is due but waits behind it
+        outbox.dispatch();
+        assertThat(recorder.delivered).containsExactly(3);
+
+        makeDue(recorder.name());
+        outbox.dispatch();
+        assertThat(recorder.delivered).containsExactly(3, 1, 2);
+        assertThat(statuses(recorder.name())).containsExactly("DONE", "DONE", "DONE");
+        assertThat(jdbcTemplate.queryForList("SELECT attempts FROM outbox_events WHERE handler = ? ORDER BY id",
+                Integer.class, recorder.name())).containsExactly(2, 1, 1);
+    }
+
+    @Test
+    void rowThatKeepsFailingIsParkedAndReleasesItsAggregate() {
+        Recorder recorder = new Recorder(Map.of(1, Integer.MAX_VALUE));
+        OutboxService outbox = outbox(recorder, 2);
+        enqueue(outbox, new Step(9, 1));
+        enqueue(outbox, new Step(9, 2));
+
+        outbox.dispatch();
+        makeDue(recorder.name());
+        outbox.dispatch();
+        assertThat(statuses(recorder.name())).containsExactly("DEAD", "PENDING");
+        outbox.dispatch();
+        assertThat(recorder.delivered).containsExactly(2);
+        assertThat(statuses(recorder.name())).containsExactly("DEAD", "DONE");
+    }
+
+    @Test
+    void concurrentDispatchersDeliverEachRowOnce() throws Exception {
+        Recorder recorder = new Recorder(Map.of());
+        List<OutboxService> nodes = List.of(outbox(recorder, 10), outbox(recorder, 10), outbox(recorder, 10));
+        for (int i = 0; i < 60; i++)
+            enqueue(nodes.get(0), new Step(100 + i % 6, i));
+
+        ExecutorService pool = Executors.newFixedThreadPool(nodes.size());
+        CyclicBarrier start = new CyclicBarrier(nodes.size());
+        List<Future<?>> runs = new ArrayList<>();
+        for (OutboxService node : nodes) {
+            runs.add(pool.submit(() -> {
+                start.await();
+                for (int pass = 0; pass < 20; pass++)
+                    node.dispatch();
+                return null;
+            }));
+        }
+        for (Future<?> run : runs)
+            run.get(1, TimeUnit.MINUTES);
+        pool.shutdown();
+
+        assertThat(recorder.delivered).hasSize(60).doesNotHaveDuplicates();
+        assertThat(statuses(recorder.name())).containsOnly("DONE");
+        // Within one aggregate, steps arrive in the order they were written
+        for (int aggregate = 0; aggregate < 6; aggregate++) {
+            int a = aggregate;
+            assertThat(recorder.delivered.stream().filter(seq -> seq % 6 == a).toList()).isSorted();
+        }
+    }
+
+    /** Records delivered steps; step {@code seq} fails its first {@code failures.get(seq)} deliveries. */
+    private static final class Recorder implements OutboxHandler<Step> {
+        final String name = "test-" + HANDLERS.incrementAndGet();
+        final List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+
+        Recorder(Map<Integer, Integer> failures) {
+            failures.forEach((seq, n) -> failuresLeft.put(seq, new AtomicInteger(n)));
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String eventType() {
+            return "TEST_STEP";
+        }
+
+        @Override
+        public Class<Step> payloadType() {
+            return Step.class;
+        }
+
+        @Override
+        public void handle(Step step) {
+            AtomicInteger left = failuresLeft.get(step.seq());
+            if (left != null && left.getAndDecrement() > 0)
+                throw new IllegalStateException("Step " + step.seq() + " failed");
+            delivered.add(step.seq());
+        }
+    }
+
+    private OutboxService outbox(Recorder recorder, int maxAttempts) {
+        OutboxService outbox = new OutboxService(outboxEventRepository, jdbcTemplate, objectMapper,
+                transactionManager, List.of(recorder));
+        ReflectionTestUtils.setField(outbox, "batchSize", 100);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", maxAttempts);
+        return outbox;
+    }
+
+    private void enqueue(OutboxService outbox, Step step) {
+        transactionTemplate.executeWithoutResult(status -> outbox.enqueue("TEST_STEP", step.aggregateId(), step));
+    }
+
+    private void makeDue(String handler) {
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = ? WHERE handler = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), handler);
+    }
+
+    private List<String> statuses(String handler) {
+        return jdbcTemplate.queryForList("SELECT status FROM outbox_events WHERE handler = ? ORDER BY id",
+                String.class, handler);
+    }
+
+    private double salesOf(long vendorId) {
+        return jdbcTemplate.queryForObject("SELECT total_sales FROM vendors WHERE id = ?", BigDecimal.class, vendorId)
+                .doubleValue();
+    }
+
+    private void awaitDone(String handler, long aggregateId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"DONE".equals(jdbcTemplate.queryForObject("SELECT status FROM outbox_events "
+                + "WHERE handler = ? AND aggregate_id = ?", String.class, handler, aggregateId))) {
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("Outbox row for " + handler + "/" + aggregateId + " was never delivered");
+            Thread.sleep(20);
+        }
+    }
+}
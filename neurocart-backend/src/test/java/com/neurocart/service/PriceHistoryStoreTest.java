@@ -0,0 +1,142 @@
+package com.neurocart.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceHistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static final long DAY = 86_400;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pricehistory;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS products (id BIGINT PRIMARY KEY, "
+                + "current_price DECIMAL(10, 2), is_active BOOLEAN)");
+    }
+
+    @Test
+    void tornTailIsCutSoLaterAppendsReplayCleanly() throws IOException {
+        long now = Instant.now().getEpochSecond();
+        PriceHistoryStore first = open();
+        first.record(7, 10_000, now);
+        first.record(7, 12_500, now + 1);
+        first.close();
+
+        // A crash mid-append: a full product id, then one byte of the timestamp
+        Path segment = segment();
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[] { 7, (byte) 0x80 }, StandardOpenOption.APPEND);
+
+        PriceHistoryStore second = open();
+        assertThat(Files.size(segment)).isEqualTo(intact);
+        second.record(7, 9_900, now + 2);
+        second.close();
+
+        PriceHistoryStore third = open();
+        assertThat(third.range(7, 0, Long.MAX_VALUE)).extracting(PriceHistoryStore.PricePoint::priceMinor)
+                .containsExactly(10_000L, 12_500L, 9_900L);
+        third.close();
+    }
+
+    @Test
+    void intactSegmentIsLeftAlone() throws IOException {
+        long now = Instant.now().getEpochSecond();
+        PriceHistoryStore first = open();
+        first.record(8, 500, now);
+        first.close();
+        long size = Files.size(segment());
+
+        PriceHistoryStore second = open();
+        assertThat(Files.size(segment())).isEqualTo(size);
+        assertThat(second.range(8, 0, Long.MAX_VALUE)).hasSize(1);
+        second.close();
+    }
+
+    @Test
+    void pointsBeforeTheWindowFoldIntoABaselineAndTheirSegmentsGo() throws IOException {
+        long today = Math.floorDiv(Instant.now().getEpochSecond(), DAY) * DAY;
+        long windowStart = today - 30 * DAY;
+        PriceHistoryStore first = open();
+        first.record(9, 1_000, today - 40 * DAY);
+        first.record(9, 1_200, today - 35 * DAY);
+        first.record(9, 1_300, today - 10 * DAY);
+        first.record(9, 1_400, today);
+        first.record(10, 700, today - 5 * DAY);
+        assertThat(segments()).hasSize(5);
+
+        first.close();
+
+        // Startup runs the retention pass after replaying
+        PriceHistoryStore second = open();
+        List<PriceHistoryStore.PricePoint> expected = List.of(new PriceHistoryStore.PricePoint(windowStart, 1_200),
+                new PriceHistoryStore.PricePoint(today - 10 * DAY, 1_300),
+                new PriceHistoryStore.PricePoint(today, 1_400));
+        assertThat(second.range(9, 0, Long.MAX_VALUE)).isEqualTo(expected);
+        assertThat(segments()).hasSize(3);
+        second.close();
+
+        PriceHistoryStore third = open();
+        assertThat(third.range(9, 0, Long.MAX_VALUE)).isEqualTo(expected);
+        assertThat(third.range(10, 0, Long.MAX_VALUE)).hasSize(1);
+        third.close();
+    }
+
+    @Test
+    void rangeSeeksPastEarlierCheckpoints() throws IOException {
+        long start = Instant.now().getEpochSecond() - 10_000;
+        PriceHistoryStore store = open();
+        for (int i = 0; i < 1_000; i++)
+            store.record(11, 100 + i % 2, start + i);
+        // Two hundred changes in one second straddle the checkpoints at points 1024 and 1088
+        for (int i = 0; i < 200; i++)
+            store.record(11, 200 + i % 2, start + 5_000);
+
+        assertThat(store.range(11, start + 500, start + 520)).extracting(PriceHistoryStore.PricePoint::epochSecond)
+                .containsExactlyElementsOf(LongStream.rangeClosed(start + 500, start + 520).boxed().toList());
+        assertThat(store.range(11, start + 5_000, start + 5_000)).hasSize(200);
+        assertThat(store.range(11, 0, Long.MAX_VALUE)).hasSize(1_200);
+        store.close();
+    }
+
+    private PriceHistoryStore open() throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(jdbcTemplate);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "retentionDays", 30);
+        store.load();
+        return store;
+    }
+
+    private Path segment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("prices-")).toList();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PricingEngineTest extends IntegrationTest {
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void repricingWritesTheComputedPrice() {
+        // Five units left: 1 + 0.15 * 0.5 scarcity surge
+        Product product = product(5, "100.00");
+        pricingEngine.repriceCatalog();
+        assertThat(priceOf(product)).isEqualByComparingTo("107.50");
+    }
+
+    @Test
+    void repricingDoesNotOverwriteAnEditMadeAfterTheChunkWasRead() throws Exception {
+        Product product = product(5, "100.00");
+        CountDownLatch edited = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        long skippedBefore = skipped();
+
+        // The vendor edit holds the row while the engine reads the old base price and tries to write
+        CompletableFuture<Void> edit = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(s -> {
+            jdbcTemplate.update("UPDATE products SET base_price = 200.00 WHERE id = ?", product.getId());
+            edited.countDown();
+            await(release);
+        }));
+        assertThat(edited.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> reprice = CompletableFuture.runAsync(pricingEngine::repriceCatalog);
+        Thread.sleep(500);
+        release.countDown();
+        edit.get(10, TimeUnit.SECONDS);
+        reprice.get(30, TimeUnit.SECONDS);
+
+        assertThat(priceOf(product)).isEqualByComparingTo("100.00");
+        assertThat(skipped()).isGreaterThan(skippedBefore);
+
+        pricingEngine.repriceCatalog();
+        assertThat(priceOf(product)).isEqualByComparingTo("215.00");
+    }
+
+    @Test
+    void repricedProductShowsUpInTheIncrementalExport() {
+        Product product = product(5, "100.00");
+        jdbcTemplate.update("UPDATE products SET updated_at = ? WHERE id = ?", LocalDateTime.now().minusDays(1),
+                product.getId());
+        LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+        assertThat(updatedSince(product, since)).isFalse();
+
+        pricingEngine.repriceCatalog();
+        assertThat(updatedSince(product, since)).isTrue();
+    }
+
+    // The incremental export's filter (ProductExportService, updatedSince)
+    private boolean updatedSince(Product product, LocalDateTime since) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE id = ? AND updated_at >= ?",
+                Integer.class, product.getId(), since) == 1;
+    }
+
+    private BigDecimal priceOf(Product product) {
+        return jdbcTemplate.queryForObject("SELECT current_price FROM products WHERE id = ?", BigDecimal.class,
+                product.getId());
+    }
+
+    private long skipped() {
+        return (Long) pricingEngine.stats().get("skippedStaleWrites");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.neurocart.service;
+
+import com.neurocart.config.CacheConfig;
+import com.neurocart.config.LocalSharedCacheTier;
+import com.neurocart.config.TieredCacheManager;
+import com.neurocart.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductDetailCacheTest {
+
+    private final LocalSharedCacheTier sharedTier = new LocalSharedCacheTier(Duration.ofMinutes(30), 1000);
+
+    @Test
+    void entriesStayOnThisNodeWhenTheSharedTierIsEnabled() {
+        TieredCacheManager cacheManager = cacheManager(false);
+        ProductDetailCache detailCache = new ProductDetailCache(cacheManager, Duration.ofSeconds(5));
+
+        assertThat(detailCache.get(1L, () -> loaded(1L, "first")).getName()).isEqualTo("first");
+        assertThat(sharedTier.stats()).containsEntry("entries", 0L);
+
+        // Caches that keep the default still write through
+        cacheManager.getCache("products").put(1L, "shared");
+        assertThat(sharedTier.get("products", 1L)).isEqualTo("shared");
+        assertThat(sharedTier.get(ProductDetailCache.CACHE_NAME, 1L)).isNull();
+
+        detailCache.invalidate(1L);
+        assertThat(detailCache.get(1L, () -> loaded(1L, "second")).getName()).isEqualTo("second");
+    }
+
+    @Test
+    void sharedDetailCacheIsRejectedAtStartup() {
+        assertThatThrownBy(() -> new ProductDetailCache(cacheManager(true), Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private TieredCacheManager cacheManager(boolean detailsShared) {
+        CacheConfig.CacheProperties properties = new CacheConfig.CacheProperties();
+        properties.getShared().setEnabled(true);
+        CacheConfig.CacheProperties.Spec details = new CacheConfig.CacheProperties.Spec();
+        details.setShared(detailsShared);
+        properties.getCaches().put(ProductDetailCache.CACHE_NAME, details);
+        return new TieredCacheManager(properties, sharedTier);
+    }
+
+    private static ProductDetailCache.Loaded loaded(long id, String name) {
+        return new ProductDetailCache.Loaded(ProductDTO.ProductResponse.builder().id(id).name(name).demandCount(0)
+                .build(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,72 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductImportTest extends IntegrationTest {
+
+    @Autowired
+    private ProductImportService importService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Test
+    void committedBatchIsSearchableBeforeTheStreamEnds() throws IOException {
+        String token = "importbatch" + System.nanoTime();
+        User vendor = userRepository.findByUsername("techzone").orElseThrow();
+        int[] visibleMidStream = { -1 };
+
+        // The second part is only read once the first batch has been parsed, inserted and committed
+        InputStream firstBatch = rows(token, 0, ProductImportService.BATCH_SIZE);
+        InputStream rest = new InputStream() {
+            private InputStream delegate;
+
+            @Override
+            public int read() throws IOException {
+                return open().read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return open().read(b, off, len);
+            }
+
+            private InputStream open() {
+                if (delegate == null) {
+                    visibleMidStream[0] = searchIndex.search(token).getCardinality();
+                    delegate = rows(token, ProductImportService.BATCH_SIZE, 10);
+                }
+                return delegate;
+            }
+        };
+
+        ProductDTO.ImportReport report = importService.importProducts(new SequenceInputStream(firstBatch, rest),
+                ProductImportService.Format.NDJSON, vendor);
+
+        assertThat(report.getImported()).isEqualTo(ProductImportService.BATCH_SIZE + 10);
+        assertThat(visibleMidStream[0]).isEqualTo(ProductImportService.BATCH_SIZE);
+        assertThat(searchIndex.search(token).getCardinality()).isEqualTo(ProductImportService.BATCH_SIZE + 10);
+    }
+
+    private static InputStream rows(String token, int from, int count) {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            ndjson.append("{\"name\":\"").append(token).append(" item ").append(i)
+                    .append("\",\"basePrice\":\"10.00\",\"stockQuantity\":5,\"category\":\"Books\",\"sku\":\"")
+                    .append(token).append('-').append(i).append("\"}\n");
+        }
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,70 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.dto.ProductDTO;
+import com.neurocart.entity.Category;
+import com.neurocart.entity.Product;
+import com.neurocart.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductKeysetPageTest extends IntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void categoryPagesWalkTiedKeysInOrderOnce() {
+        Category category = categoryRepository.save(Category.builder().name("Keyset " + System.nanoTime()).build());
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product p = product(5, i < 3 ? "20.00" : "10.00");
+            p.setCategory(category);
+            products.add(productRepository.save(p));
+        }
+        products.sort(Comparator.comparing(Product::getCurrentPrice).thenComparing(Product::getId).reversed());
+
+        List<Long> walked = walk("currentPrice", category.getId(), 4);
+        assertThat(walked).containsExactlyElementsOf(products.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void unfilteredPagesReachEveryActiveProduct() {
+        Product added = product(5, "15.00");
+        for (String sortBy : List.of("createdAt", "currentPrice", "averageRating", "demandCount")) {
+            List<Long> walked = walk(sortBy, null, 50);
+            Long active = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE is_active = TRUE",
+                    Long.class);
+            assertThat(new HashSet<>(walked)).hasSize(walked.size());
+            assertThat(walked).hasSize(active.intValue()).contains(added.getId());
+        }
+    }
+
+    @Test
+    void firstPageBoundSitsAboveTheLargestPrice() {
+        Product top = product(5, "99999999.99");
+        ProductDTO.ProductCursorPage page = productService.getProductsAfter(null, 1, "currentPrice", null);
+        assertThat(page.getContent()).extracting(ProductDTO.ProductSummary::getId).containsExactly(top.getId());
+    }
+
+    private List<Long> walk(String sortBy, Long categoryId, int size) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductDTO.ProductCursorPage page = productService.getProductsAfter(cursor, size, sortBy, categoryId);
+            page.getContent().forEach(p -> ids.add(p.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+}
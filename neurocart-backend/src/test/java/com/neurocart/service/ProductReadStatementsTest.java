@@ -0,0 +1,89 @@
+package com.neurocart.service;
+
+import com.neurocart.IntegrationTest;
+import com.neurocart.entity.Cart;
+import com.neurocart.entity.Category;
+import com.neurocart.entity.Product;
+import com.neurocart.entity.User;
+import com.neurocart.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Read paths issue a fixed number of statements however many rows they map. */
+class ProductReadStatementsTest extends IntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void listingPagesDoNotLoadCategoriesPerRow() {
+        Category category = newCategory();
+        addProducts(category, 3);
+        long small = statementsIn(() -> productService.getAllProducts(0, 50, null, category.getId(), null));
+        addProducts(category, 20);
+        long large = statementsIn(() -> productService.getAllProducts(0, 50, null, category.getId(), null));
+
+        // A page shorter than the page size needs no count query
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void keysetPagesAreOneStatement() {
+        Category category = newCategory();
+        addProducts(category, 15);
+        assertThat(statementsIn(() -> productService.getProductsAfter(null, 50, "currentPrice", category.getId())))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void productDetailLoadsItsAssociationsInOneStatement() {
+        Product product = product(5, "42.00");
+        product.setCategory(newCategory());
+        product.setAdditionalImages(List.of("a.png", "b.png", "c.png"));
+        Product saved = productRepository.save(product);
+
+        assertThat(statementsIn(() -> {
+            var response = productService.getProductById(saved.getId());
+            assertThat(response.getAdditionalImages()).hasSize(3);
+            assertThat(response.getCategoryName()).isNotNull();
+        })).isEqualTo(1);
+    }
+
+    @Test
+    void cartLinesLoadTheirProductsTogether() {
+        Category category = newCategory();
+        User user = customer();
+        for (Product p : addProducts(category, 8))
+            addToCart(user, p, 1);
+
+        assertThat(statementsIn(() -> {
+            List<Cart> lines = cartService.getUserCartItems(user);
+            assertThat(lines).hasSize(8);
+            lines.forEach(line -> assertThat(line.getProduct().getCategory().getName()).isNotNull());
+        })).isEqualTo(1);
+    }
+
+    private Category newCategory() {
+        return categoryRepository.save(Category.builder().name("Statements " + System.nanoTime()).build());
+    }
+
+    private List<Product> addProducts(Category category, int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Product p = product(5, "10.00");
+            p.setCategory(category);
+            return productRepository.save(p);
+        }).toList();
+    }
+}